@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.openshift.booster.GreetingEndpoint.Greeting;
+
+/**
+ * Measures the {@link Greeting} construction. The <code>format</code> and <code>time</code> benchmarks measure the original construction, i.e.
+ * {@link String#format(String, Object...)} and {@link LocalTime#toString()} for every greeting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GreetingBenchmark {
+
+    String name = "World";
+
+    @Benchmark
+    public Greeting greeting() {
+        return new Greeting("Hello, " + name + "!");
+    }
+
+    @Benchmark
+    public String concat() {
+        return "Hello, " + name + "!";
+    }
+
+    @Benchmark
+    public String format() {
+        return String.format("Hello, %s!", name);
+    }
+
+    @Benchmark
+    public String time() {
+        return LocalTime.now().toString();
+    }
+
+    @Benchmark
+    public String cachedTime() {
+        return GreetingClock.now();
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.openshift.booster.CircuitBreakerEndpoint.CircuitBreaker;
+import io.openshift.booster.GreetingEndpoint.Greeting;
+
+/**
+ * Measures the JSON and CBOR serialization of the response entities. Run with <code>-prof gc</code> to compare the allocation rate of Jackson and
+ * {@link GreetingWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Greeting greeting = new Greeting("Hello, World!");
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+    @Benchmark
+    public byte[] greeting() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(greeting);
+    }
+
+    @Benchmark
+    public int greetingStream() throws IOException {
+        out.reset();
+        mapper.writeValue(out, greeting);
+        return out.size();
+    }
+
+    @Benchmark
+    public int greetingWriter() throws IOException {
+        out.reset();
+        GreetingWriter.write(greeting, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] greetingCbor() throws JsonProcessingException {
+        return CborProvider.MAPPER.writeValueAsBytes(greeting);
+    }
+
+    @Benchmark
+    public byte[] circuitBreaker() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(CircuitBreaker.OPEN);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.Hystrix;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the {@link NameCommand} execution against an in-process stub name service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dgreeting.name.uri=http://localhost:" + NameCommandBenchmark.STUB_PORT + "/api/name")
+public class NameCommandBenchmark {
+
+    static final int STUB_PORT = 18081;
+
+    private static final byte[] NAME = "World".getBytes(StandardCharsets.UTF_8);
+
+    @Param({ "THREAD", "SEMAPHORE" })
+    String isolation;
+
+    private HttpServer stub;
+
+    private Client client;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("localhost", STUB_PORT), 0);
+        stub.createContext("/api/name", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, NAME.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(NAME);
+            }
+        });
+        stub.setExecutor(Executors.newFixedThreadPool(4));
+        stub.start();
+        // Must be set before the first command is created
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.NameCommand.execution.isolation.strategy", isolation);
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.NameCommand.execution.isolation.semaphore.maxConcurrentRequests", 1000);
+        client = new ClientConfig().produceJaxrsClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        stub.stop(0);
+        Hystrix.reset(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public String execute() {
+        return new NameCommand(client, NameServiceEndpoint.DEFAULT).execute();
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
+import javax.websocket.Session;
+
+/**
+ * Broadcasts text messages to all registered WebSocket sessions.
+ * <p>
+ * Messages are queued in a bounded queue (the oldest message is dropped if the queue is full) and the queue is flushed periodically once
+ * {@link #start(ScheduledExecutorService)} is called. The owner is expected to pass the container's managed scheduled executor and to call
+ * {@link #stop()} when the application is undeployed, i.e. the broadcaster does not create any thread.
+ * <p>
+ * All the messages queued since the last flush are coalesced into one frame, either joined with a line separator or conflated, i.e. only the last
+ * message is sent. Frames are sent asynchronously and a session never has more than one frame in flight - a slow consumer only keeps the latest
+ * frame and is closed if it falls behind for too long. So the caller never blocks on WebSocket I/O.
+ */
+public class WebSocketBroadcaster {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketBroadcaster.class.getName());
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    // The max number of consecutive frames a session may skip before it's closed
+    private static final int MAX_SKIPPED_FRAMES = 50;
+
+    private final boolean conflate;
+
+    private final BlockingQueue<String> messages;
+
+    private final Map<Session, Sink> sinks;
+
+    private ScheduledFuture<?> sender;
+
+    /**
+     *
+     * @param conflate if set to <code>true</code> only the last message queued since the last flush is sent
+     */
+    public WebSocketBroadcaster(boolean conflate) {
+        this.conflate = conflate;
+        this.messages = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.sinks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     *
+     * @param executor the executor used to flush the queue periodically
+     */
+    public synchronized void start(ScheduledExecutorService executor) {
+        if (sender == null) {
+            sender = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop flushing the queue. The queued messages are discarded.
+     */
+    public synchronized void stop() {
+        if (sender != null) {
+            sender.cancel(false);
+            sender = null;
+        }
+        messages.clear();
+    }
+
+    /**
+     * Queue the message. This method never blocks.
+     *
+     * @param message
+     */
+    public void broadcast(String message) {
+        if (sinks.isEmpty()) {
+            // Nobody is listening
+            return;
+        }
+        while (!messages.offer(message)) {
+            // Drop the oldest message
+            messages.poll();
+        }
+    }
+
+    public void add(Session session) {
+        sinks.put(session, new Sink(session));
+    }
+
+    public void remove(Session session) {
+        sinks.remove(session);
+    }
+
+    public int size() {
+        return sinks.size();
+    }
+
+    public void flush() {
+        try {
+            List<String> batch = new ArrayList<>();
+            messages.drainTo(batch);
+            if (batch.isEmpty()) {
+                return;
+            }
+            String frame = conflate ? batch.get(batch.size() - 1) : String.join("\n", batch);
+            for (Sink sink : sinks.values()) {
+                sink.send(frame);
+            }
+        } catch (Throwable e) {
+            // Never let the exception suppress the subsequent flushes
+            LOGGER.log(Level.WARNING, "Unable to flush WebSocket messages", e);
+        }
+    }
+
+    private class Sink {
+
+        private final Session session;
+
+        private final AtomicBoolean sending;
+
+        private final AtomicReference<String> pending;
+
+        private final AtomicInteger skipped;
+
+        Sink(Session session) {
+            this.session = session;
+            this.sending = new AtomicBoolean(false);
+            this.pending = new AtomicReference<>();
+            this.skipped = new AtomicInteger();
+        }
+
+        void send(String frame) {
+            if (!session.isOpen()) {
+                evict(null);
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                doSend(frame);
+                return;
+            }
+            // The previous frame was not sent yet - only keep the latest one
+            if (pending.getAndSet(frame) != null && skipped.incrementAndGet() > MAX_SKIPPED_FRAMES) {
+                evict(new CloseReason(CloseCodes.TRY_AGAIN_LATER, "Slow consumer"));
+                return;
+            }
+            sendPending();
+        }
+
+        private void doSend(String frame) {
+            try {
+                session.getAsyncRemote().sendText(frame, result -> {
+                    if (!result.isOK()) {
+                        evict(null);
+                        return;
+                    }
+                    skipped.set(0);
+                    sending.set(false);
+                    sendPending();
+                });
+            } catch (RuntimeException e) {
+                evict(null);
+            }
+        }
+
+        private void sendPending() {
+            // The in-flight frame might have been sent in the meantime
+            if (pending.get() != null && sending.compareAndSet(false, true)) {
+                String next = pending.getAndSet(null);
+                if (next != null) {
+                    doSend(next);
+                } else {
+                    sending.set(false);
+                }
+            }
+        }
+
+        private void evict(CloseReason reason) {
+            sinks.remove(session, this);
+            if (reason != null && session.isOpen()) {
+                try {
+                    session.close(reason);
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixInvokableInfo;
+
+/**
+ * Adjusts the number of concurrent name service invocations permitted in the semaphore isolation mode using the AIMD
+ * algorithm. After each window of completed invocations the limit is increased by one if the average latency is below the target, or multiplied by
+ * the backoff ratio if the average latency exceeds the target or an invocation timed out or was rejected.
+ * <p>
+ * The limit is applied through the <code>execution.isolation.semaphore.maxConcurrentRequests</code> property of {@link NameCommand}, i.e. the
+ * Hystrix semaphore itself enforces the limit and the rejections are reflected in the circuit breaker metrics. If multiple name service endpoints are
+ * configured the limit is applied to each endpoint separately.
+ * <p>
+ * The limit is only active if the name service commands actually use the semaphore isolation. The isolation strategy is only read when the first
+ * command is created, see also {@link GreetingProperties#NAME_ISOLATION}, and so it's taken from the properties of the completed commands.
+ *
+ * @see GreetingProperties#NAME_ISOLATION
+ */
+@ApplicationScoped
+public class AdaptiveConcurrencyLimit {
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    private final AtomicLong samples = new AtomicLong();
+
+    private final LongAdder latencySum = new LongAdder();
+
+    private final LongAdder drops = new LongAdder();
+
+    private final AtomicInteger limit = new AtomicInteger(-1);
+
+    private volatile ExecutionIsolationStrategy isolation;
+
+    /**
+     *
+     * @param command the completed command
+     */
+    void onCompleted(HystrixInvokableInfo<?> command) {
+        isolation = command.getProperties().executionIsolationStrategy().get();
+        if (!isActive() || command.isResponseShortCircuited()) {
+            return;
+        }
+        if (command.isResponseSemaphoreRejected() || command.isResponseTimedOut() || command.getExecutionTimeInMilliseconds() < 0) {
+            drops.increment();
+        } else {
+            latencySum.add(command.getExecutionTimeInMilliseconds());
+        }
+        long count = samples.incrementAndGet();
+        if (count % GreetingProperties.ADAPTIVE_LIMIT_WINDOW.get() == 0) {
+            adjust(GreetingProperties.ADAPTIVE_LIMIT_WINDOW.get());
+        }
+    }
+
+    /**
+     *
+     * @return the current limit or <code>-1</code> if the limit was not set yet
+     */
+    int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     *
+     * @return the isolation strategy of the last completed command or <code>null</code> if no command completed yet
+     */
+    ExecutionIsolationStrategy getIsolation() {
+        return isolation;
+    }
+
+    boolean isActive() {
+        return GreetingProperties.ADAPTIVE_LIMIT.get() && ExecutionIsolationStrategy.SEMAPHORE == isolation;
+    }
+
+    private synchronized void adjust(int window) {
+        long dropped = drops.sumThenReset();
+        long completed = window - dropped;
+        long averageLatency = completed > 0 ? latencySum.sumThenReset() / completed : 0;
+        int current = limit.get() < 0 ? GreetingProperties.ADAPTIVE_LIMIT_INITIAL.get() : limit.get();
+        int next;
+        if (dropped > 0 || averageLatency > GreetingProperties.ADAPTIVE_LIMIT_TARGET_LATENCY.get()) {
+            // Multiplicative decrease
+            next = (int) (current * GreetingProperties.ADAPTIVE_LIMIT_BACKOFF_RATIO.get());
+        } else {
+            // Additive increase
+            next = current + 1;
+        }
+        next = Math.max(GreetingProperties.ADAPTIVE_LIMIT_MIN.get(), Math.min(GreetingProperties.ADAPTIVE_LIMIT_MAX.get(), next));
+        if (next != limit.getAndSet(next)) {
+            for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+                ConfigurationManager.getConfigInstance().setProperty(maxConcurrentRequestsProperty(endpoint.getKey()), next);
+            }
+        }
+    }
+
+    static String maxConcurrentRequestsProperty(HystrixCommandKey key) {
+        return "hystrix.command." + key.name() + ".execution.isolation.semaphore.maxConcurrentRequests";
+    }
+
+}
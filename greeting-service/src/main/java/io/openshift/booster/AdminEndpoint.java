@@ -0,0 +1,236 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+
+import com.netflix.config.ConfigurationManager;
+
+/**
+ * Allows to read and change the Hystrix and greeting service tunables at runtime. The changes are applied to the Archaius runtime configuration,
+ * i.e. they take effect immediately for all the dynamic properties. Most of the Hystrix properties are read dynamically, e.g.
+ * <code>hystrix.command.NameCommand.execution.isolation.thread.timeoutInMilliseconds</code> or
+ * <code>hystrix.threadpool.NameCommand.coreSize</code>. A notable exception is <code>hystrix.threadpool.NameCommand.maxQueueSize</code> - use
+ * <code>queueSizeRejectionThreshold</code> to limit the queue at runtime.
+ * <p>
+ * Only an explicit set of tunables may be read and changed, see also {@link #getType(String)}. In particular, the name service endpoints, the
+ * properties only read at startup and the forced circuits are not supported. An unsupported key or an invalid value results in <code>400</code>.
+ * <p>
+ * The endpoint is only available if {@link GreetingProperties#ADMIN} is set and {@link GreetingProperties#ADMIN_TOKEN} is configured. Each request
+ * must contain the <code>Authorization: Bearer &lt;token&gt;</code> header.
+ */
+@Path("/admin/properties")
+public class AdminEndpoint {
+
+    private static final String BEARER = "Bearer";
+
+    private static final Map<String, Class<?>> GREETING_PROPERTIES;
+
+    private static final Map<String, Class<?>> HYSTRIX_PROPERTIES;
+
+    // E.g. hystrix.command.NameCommand.circuitBreaker.sleepWindowInMilliseconds
+    private static final Pattern HYSTRIX_KEY = Pattern.compile("hystrix\\.(command|threadpool|collapser)\\.[A-Za-z0-9_-]+\\.(.+)");
+
+    static {
+        Map<String, Class<?>> greeting = new HashMap<>();
+        greeting.put("greeting.async", Boolean.class);
+        greeting.put("greeting.collapse", Boolean.class);
+        greeting.put("greeting.cache.enabled", Boolean.class);
+        greeting.put("greeting.cache.ttlInMilliseconds", Long.class);
+        greeting.put("greeting.cache.maxSize", Integer.class);
+        greeting.put("greeting.name.adaptiveLimit.enabled", Boolean.class);
+        greeting.put("greeting.name.adaptiveLimit.initial", Integer.class);
+        greeting.put("greeting.name.adaptiveLimit.min", Integer.class);
+        greeting.put("greeting.name.adaptiveLimit.max", Integer.class);
+        greeting.put("greeting.name.adaptiveLimit.targetLatencyInMilliseconds", Long.class);
+        greeting.put("greeting.name.adaptiveLimit.backoffRatio", Double.class);
+        greeting.put("greeting.name.adaptiveLimit.window", Integer.class);
+        greeting.put("greeting.name.hedge.enabled", Boolean.class);
+        greeting.put("greeting.name.hedge.percentile", Double.class);
+        greeting.put("greeting.name.hedge.minDelayInMilliseconds", Long.class);
+        greeting.put("greeting.name.hedge.budget", Double.class);
+        greeting.put("greeting.name.retry.enabled", Boolean.class);
+        greeting.put("greeting.name.retry.maxAttempts", Integer.class);
+        greeting.put("greeting.name.retry.initialBackoffInMilliseconds", Long.class);
+        greeting.put("greeting.name.retry.maxBackoffInMilliseconds", Long.class);
+        greeting.put("greeting.name.retry.budget", Double.class);
+        greeting.put("greeting.bulkhead.enabled", Boolean.class);
+        greeting.put("greeting.bulkhead.shedThreshold", Double.class);
+        greeting.put("greeting.metrics.stream.maxConnections", Integer.class);
+        GREETING_PROPERTIES = Collections.unmodifiableMap(greeting);
+        // The suffixes of hystrix.command|threadpool|collapser.<key>.*
+        Map<String, Class<?>> hystrix = new HashMap<>();
+        hystrix.put("command.execution.isolation.thread.timeoutInMilliseconds", Integer.class);
+        hystrix.put("command.execution.isolation.semaphore.maxConcurrentRequests", Integer.class);
+        hystrix.put("command.fallback.isolation.semaphore.maxConcurrentRequests", Integer.class);
+        hystrix.put("command.circuitBreaker.requestVolumeThreshold", Integer.class);
+        hystrix.put("command.circuitBreaker.errorThresholdPercentage", Integer.class);
+        hystrix.put("command.circuitBreaker.sleepWindowInMilliseconds", Integer.class);
+        hystrix.put("threadpool.coreSize", Integer.class);
+        hystrix.put("threadpool.maximumSize", Integer.class);
+        hystrix.put("threadpool.allowMaximumSizeToDivergeFromCoreSize", Boolean.class);
+        hystrix.put("threadpool.keepAliveTimeMinutes", Integer.class);
+        hystrix.put("threadpool.queueSizeRejectionThreshold", Integer.class);
+        hystrix.put("collapser.timerDelayInMilliseconds", Integer.class);
+        hystrix.put("collapser.maxRequestsInBatch", Integer.class);
+        HYSTRIX_PROPERTIES = Collections.unmodifiableMap(hystrix);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, String> getProperties(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        checkAccess(authorization);
+        return listProperties();
+    }
+
+    /**
+     *
+     * @param authorization
+     * @param properties the properties to set
+     * @return all the supported properties
+     */
+    @PUT
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Map<String, String> setProperties(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization, Map<String, String> properties) {
+        checkAccess(authorization);
+        if (properties == null || properties.isEmpty()) {
+            throw new BadRequestException("No properties to set");
+        }
+        // Validate all the properties first so that an invalid request does not change anything
+        properties.forEach(AdminEndpoint::validate);
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        properties.forEach(config::setProperty);
+        return listProperties();
+    }
+
+    /**
+     * The default value is used afterwards.
+     *
+     * @param authorization
+     * @param key
+     * @return all the supported properties
+     */
+    @DELETE
+    @Path("/{key}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, String> clearProperty(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization, @PathParam("key") String key) {
+        checkAccess(authorization);
+        if (getType(key) == null) {
+            throw new BadRequestException("Unsupported property: " + key);
+        }
+        ConfigurationManager.getConfigInstance().clearProperty(key);
+        return listProperties();
+    }
+
+    /**
+     *
+     * @param key
+     * @return the type of the value or <code>null</code> if the property is not supported
+     */
+    static Class<?> getType(String key) {
+        Class<?> type = GREETING_PROPERTIES.get(key);
+        if (type == null) {
+            Matcher matcher = HYSTRIX_KEY.matcher(key);
+            if (matcher.matches()) {
+                type = HYSTRIX_PROPERTIES.get(matcher.group(1) + "." + matcher.group(2));
+            }
+        }
+        return type;
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @throws BadRequestException if the property is not supported or the value is not valid
+     */
+    static void validate(String key, String value) {
+        Class<?> type = getType(key);
+        if (type == null) {
+            throw new BadRequestException("Unsupported property: " + key);
+        }
+        if (value == null) {
+            throw new BadRequestException("No value for property: " + key);
+        }
+        try {
+            if (Boolean.class.equals(type)) {
+                if (!"true".equals(value) && !"false".equals(value)) {
+                    throw new IllegalArgumentException();
+                }
+            } else if (Integer.class.equals(type)) {
+                Integer.parseInt(value);
+            } else if (Long.class.equals(type)) {
+                Long.parseLong(value);
+            } else if (Double.class.equals(type)) {
+                Double.parseDouble(value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid value of " + key + ": " + value);
+        }
+    }
+
+    private static Map<String, String> listProperties() {
+        Map<String, String> properties = new TreeMap<>();
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        for (Iterator<String> iterator = config.getKeys(); iterator.hasNext();) {
+            String key = iterator.next();
+            if (getType(key) != null) {
+                properties.put(key, String.valueOf(config.getProperty(key)));
+            }
+        }
+        return properties;
+    }
+
+    private static void checkAccess(String authorization) {
+        String token = GreetingProperties.ADMIN_TOKEN.get();
+        if (!GreetingProperties.ADMIN.get() || token == null || token.isEmpty()) {
+            throw new ForbiddenException("Admin endpoint disabled");
+        }
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER + " ", 0, BEARER.length() + 1)
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                        authorization.substring(BEARER.length() + 1).trim().getBytes(StandardCharsets.UTF_8))) {
+            throw new NotAuthorizedException(BEARER);
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolMetrics;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+
+/**
+ * Partitions the {@link NameCommand} thread pool per caller class. The caller class is derived from the API key (see
+ * {@link GreetingProperties#BULKHEAD_API_KEYS}) or from the {@value #CALLER_CLASS_HEADER} header. Unknown callers are assigned the default class
+ * which uses the {@link NameCommand#THREAD_POOL_KEY} thread pool. The other classes use the <code>NameCommand-&lt;class&gt;</code> thread pools,
+ * i.e. the pools are configured through the standard Hystrix properties, e.g. <code>hystrix.threadpool.NameCommand-low.coreSize</code>. The
+ * {@value #CALLER_CLASS_HEADER} header is not authenticated and so it may only select the default class or a class with lower priority - a higher
+ * priority class requires a mapped API key.
+ * <p>
+ * The classes are ordered by priority, the first one has the highest priority. Once the saturation of all the pools (active threads and queued
+ * tasks relative to the capacity) reaches {@link GreetingProperties#BULKHEAD_SHED_THRESHOLD} the lowest priority requests are rejected. The
+ * threshold grows linearly with the priority so that the highest priority requests are only limited by the size of their pool.
+ * <p>
+ * The bulkheads only apply if the name service is invoked on the caller class pool, see also {@link #isActive()}.
+ */
+@ApplicationScoped
+public class CallerBulkheads {
+
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    static final String CALLER_CLASS_HEADER = "X-Caller-Class";
+
+    private static final Logger LOGGER = Logger.getLogger(CallerBulkheads.class.getName());
+
+    private final Runnable callback = this::update;
+
+    private final Map<String, LongAdder> shed = new ConcurrentHashMap<>();
+
+    private volatile Config config;
+
+    @PostConstruct
+    void init() {
+        update();
+        GreetingProperties.BULKHEAD_CLASSES.addCallback(callback);
+        GreetingProperties.BULKHEAD_DEFAULT_CLASS.addCallback(callback);
+        GreetingProperties.BULKHEAD_API_KEYS.addCallback(callback);
+    }
+
+    @PreDestroy
+    void destroy() {
+        GreetingProperties.BULKHEAD_CLASSES.removeAllCallbacks();
+        GreetingProperties.BULKHEAD_DEFAULT_CLASS.removeAllCallbacks();
+        GreetingProperties.BULKHEAD_API_KEYS.removeAllCallbacks();
+    }
+
+    /**
+     * The async invocations run on the client executor, the collapsed batches mix the callers and in the semaphore isolation mode no thread pool is
+     * used at all. In these modes the requests are neither classified nor shed - the admission would be based on the saturation of pools the
+     * requests never run on. Note that the cache takes precedence over the collapser, i.e. the names are loaded on the caller class pool.
+     *
+     * @return <code>true</code> if {@link GreetingProperties#BULKHEAD} is set and the name service is invoked on the caller class pool
+     */
+    boolean isActive() {
+        return GreetingProperties.BULKHEAD.get() && !GreetingProperties.ASYNC.get()
+                && (GreetingProperties.CACHE.get() || !GreetingProperties.COLLAPSE.get())
+                && ExecutionIsolationStrategy.THREAD.name().equals(GreetingProperties.NAME_ISOLATION.get());
+    }
+
+    /**
+     *
+     * @param apiKey the value of the {@value #API_KEY_HEADER} header, may be <code>null</code>
+     * @param callerClass the value of the {@value #CALLER_CLASS_HEADER} header, may be <code>null</code>
+     * @return the caller class
+     */
+    String classify(String apiKey, String callerClass) {
+        Config config = this.config;
+        if (apiKey != null) {
+            String mapped = config.apiKeys.get(apiKey);
+            if (mapped != null) {
+                return mapped;
+            }
+        }
+        if (callerClass != null && config.threadPoolKeys.containsKey(callerClass)
+                && config.classes.indexOf(callerClass) >= config.classes.indexOf(config.defaultClass)) {
+            return callerClass;
+        }
+        return config.defaultClass;
+    }
+
+    HystrixThreadPoolKey getThreadPoolKey(String callerClass) {
+        HystrixThreadPoolKey key = config.threadPoolKeys.get(callerClass);
+        return key != null ? key : NameCommand.THREAD_POOL_KEY;
+    }
+
+    /**
+     *
+     * @param callerClass
+     * @return <code>true</code> if the request should be processed, <code>false</code> if it should be rejected
+     */
+    boolean admit(String callerClass) {
+        Config config = this.config;
+        return admit(config, callerClass, () -> getSaturation(config));
+    }
+
+    boolean admit(String callerClass, DoubleSupplier saturation) {
+        return admit(config, callerClass, saturation);
+    }
+
+    private boolean admit(Config config, String callerClass, DoubleSupplier saturation) {
+        int priority = config.classes.indexOf(callerClass);
+        if (config.classes.size() < 2 || priority <= 0) {
+            return true;
+        }
+        if (saturation.getAsDouble() >= getShedThreshold(GreetingProperties.BULKHEAD_SHED_THRESHOLD.get(), config.classes.size(), priority)) {
+            shed.computeIfAbsent(callerClass, c -> new LongAdder()).increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The lowest priority is shed at the configured threshold, the highest priority is never shed.
+     *
+     * @param threshold the configured threshold
+     * @param classes the number of caller classes
+     * @param priority the index of the caller class
+     * @return the saturation at which the requests of the given priority are rejected
+     */
+    static double getShedThreshold(double threshold, int classes, int priority) {
+        return threshold + (1.0 - threshold) * (classes - 1 - priority) / (classes - 1);
+    }
+
+    List<String> getClasses() {
+        return config.classes;
+    }
+
+    /**
+     *
+     * @param callerClass
+     * @return the number of requests rejected by the admission control
+     */
+    long getShedCount(String callerClass) {
+        LongAdder count = shed.get(callerClass);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     *
+     * @return the saturation of all the bulkhead thread pools, i.e. a value between 0 and 1
+     */
+    double getSaturation() {
+        return getSaturation(config);
+    }
+
+    private double getSaturation(Config config) {
+        long used = 0;
+        long capacity = 0;
+        for (HystrixThreadPoolKey key : config.threadPoolKeys.values()) {
+            HystrixThreadPoolMetrics metrics = HystrixThreadPoolMetrics.getInstance(key);
+            if (metrics == null) {
+                // The thread pool is created lazily
+                continue;
+            }
+            HystrixThreadPoolProperties properties = HystrixPropertiesFactory.getThreadPoolProperties(key, null);
+            int maxQueueSize = properties.maxQueueSize().get();
+            used += metrics.getCurrentActiveCount().longValue() + metrics.getCurrentQueueSize().longValue();
+            capacity += properties.actualMaximumSize() + (maxQueueSize > 0 ? Math.min(maxQueueSize, properties.queueSizeRejectionThreshold().get()) : 0);
+        }
+        return capacity > 0 ? Math.min(1.0, (double) used / capacity) : 0.0;
+    }
+
+    private synchronized void update() {
+        List<String> classes = new ArrayList<>();
+        for (String value : GreetingProperties.BULKHEAD_CLASSES.get().split(",")) {
+            if (!value.trim().isEmpty()) {
+                classes.add(value.trim());
+            }
+        }
+        String defaultClass = GreetingProperties.BULKHEAD_DEFAULT_CLASS.get();
+        if (!classes.contains(defaultClass)) {
+            classes.add(defaultClass);
+        }
+        Map<String, HystrixThreadPoolKey> threadPoolKeys = new HashMap<>();
+        for (String callerClass : classes) {
+            threadPoolKeys.put(callerClass, callerClass.equals(defaultClass) ? NameCommand.THREAD_POOL_KEY
+                    : HystrixThreadPoolKey.Factory.asKey(NameCommand.THREAD_POOL_KEY.name() + "-" + callerClass));
+        }
+        Map<String, String> apiKeys = new HashMap<>();
+        for (String value : GreetingProperties.BULKHEAD_API_KEYS.get().split(",")) {
+            int idx = value.indexOf('=');
+            if (idx > 0 && threadPoolKeys.containsKey(value.substring(idx + 1).trim())) {
+                apiKeys.put(value.substring(0, idx).trim(), value.substring(idx + 1).trim());
+            } else if (!value.trim().isEmpty()) {
+                LOGGER.warning("Invalid API key mapping ignored: " + value);
+            }
+        }
+        config = new Config(Collections.unmodifiableList(classes), defaultClass, threadPoolKeys, apiKeys);
+        LOGGER.info("Caller classes: " + classes);
+    }
+
+    private static final class Config {
+
+        private final List<String> classes;
+
+        private final String defaultClass;
+
+        private final Map<String, HystrixThreadPoolKey> threadPoolKeys;
+
+        private final Map<String, String> apiKeys;
+
+        Config(List<String> classes, String defaultClass, Map<String, HystrixThreadPoolKey> threadPoolKeys, Map<String, String> apiKeys) {
+            this.classes = classes;
+            this.defaultClass = defaultClass;
+            this.threadPoolKeys = threadPoolKeys;
+            this.apiKeys = apiKeys;
+        }
+
+    }
+
+}
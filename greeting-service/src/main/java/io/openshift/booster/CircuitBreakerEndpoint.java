@@ -17,39 +17,273 @@
  */
 package io.openshift.booster;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
 
-import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 @Path("/")
 public class CircuitBreakerEndpoint {
 
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)(ms|s)?");
+
+    private static final long MAX_WAIT_MS = 60000;
+
+    private static final CacheControl NO_CACHE = CacheControl.valueOf("no-cache");
+
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, CborProvider.APPLICATION_CBOR_TYPE).build();
+
+    @Inject
+    CircuitBreakerStatePublisher statePublisher;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    /**
+     * The pre-serialized state is returned together with a strong ETag, i.e. a client may use <code>If-None-Match</code> to avoid transferring an
+     * unchanged state.
+     * <p>
+     * If <code>waitForChange</code> is set (e.g. <code>30s</code> or <code>500ms</code>) the response is suspended until the state differs from
+     * the state identified by <code>If-None-Match</code> (or from the current state if the header is not set), or until the timeout expires.
+     * <p>
+     * If multiple name service endpoints are configured the state of each endpoint is included and the aggregated state is <code>open</code> only if
+     * the circuits of all the endpoints are open.
+     * <p>
+     * The state is also available in the <code>application/cbor</code> representation, with a different entity tag.
+     *
+     * @param ifNoneMatch
+     * @param waitForChange
+     * @param request
+     * @param asyncResponse
+     */
     @GET
     @Path("/cb-state")
-    @Produces("application/json")
-    public CircuitBreaker getState() {
-        HystrixCircuitBreaker circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(NameCommand.KEY);
-        return circuitBreaker != null && circuitBreaker.isOpen() ? CircuitBreaker.OPEN : CircuitBreaker.CLOSED;
+    @Produces({ "application/json", CborProvider.APPLICATION_CBOR })
+    public void getState(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @QueryParam("waitForChange") String waitForChange,
+            @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        Variant variant = request.selectVariant(VARIANTS);
+        boolean cbor = variant != null && CborProvider.APPLICATION_CBOR_TYPE.equals(variant.getMediaType());
+        CircuitBreaker current = current();
+        if (waitForChange == null) {
+            asyncResponse.resume(response(current, ifNoneMatch, cbor));
+            return;
+        }
+        long timeout = Math.min(parseDuration(waitForChange), MAX_WAIT_MS);
+        String known = ifNoneMatch != null ? ifNoneMatch : current.getTag(cbor).toString();
+        if (!current.matches(known, cbor) || timeout == 0) {
+            asyncResponse.resume(response(current, ifNoneMatch, cbor));
+            return;
+        }
+        Runnable listener = () -> asyncResponse.resume(response(current(), ifNoneMatch, cbor));
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(r -> {
+            statePublisher.removeListener(listener);
+            r.resume(response(current(), ifNoneMatch, cbor));
+        });
+        statePublisher.addListener(listener);
+        if (!current().matches(known, cbor)) {
+            // The state changed before the listener was registered
+            statePublisher.removeListener(listener);
+            listener.run();
+        }
+    }
+
+    private CircuitBreaker current() {
+        List<NameServiceEndpoint> endpoints = balancer.getEndpoints();
+        String states = CircuitBreakerStatePublisher.getStates(endpoints);
+        if (endpoints.size() == 1) {
+            return states.charAt(0) == CircuitBreakerStatePublisher.OPEN ? CircuitBreaker.OPEN : CircuitBreaker.CLOSED;
+        }
+        return CircuitBreaker.of(endpoints, states);
+    }
+
+    private Response response(CircuitBreaker circuitBreaker, String ifNoneMatch, boolean cbor) {
+        EntityTag tag = circuitBreaker.getTag(cbor);
+        if (ifNoneMatch != null && circuitBreaker.matches(ifNoneMatch, cbor)) {
+            return Response.notModified(tag).cacheControl(NO_CACHE).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        return Response.ok(cbor ? circuitBreaker.cbor : circuitBreaker.json, cbor ? CborProvider.APPLICATION_CBOR_TYPE : MediaType.APPLICATION_JSON_TYPE)
+                .tag(tag).cacheControl(NO_CACHE).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    private static long parseDuration(String value) {
+        Matcher matcher = DURATION_PATTERN.matcher(value.trim());
+        if (!matcher.matches()) {
+            throw new BadRequestException("Invalid duration: " + value);
+        }
+        long duration;
+        try {
+            duration = Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException e) {
+            // Overflow
+            throw new BadRequestException("Invalid duration: " + value);
+        }
+        return "ms".equals(matcher.group(2)) ? duration : TimeUnit.SECONDS.toMillis(duration);
     }
 
     static class CircuitBreaker {
 
-        static final CircuitBreaker OPEN = new CircuitBreaker("open");
+        static final CircuitBreaker OPEN = new CircuitBreaker("open", null, "open");
 
-        static final CircuitBreaker CLOSED = new CircuitBreaker("closed");
+        static final CircuitBreaker CLOSED = new CircuitBreaker("closed", null, "closed");
+
+        private static final int MAX_CACHED = 64;
+
+        // Multiple endpoints - the instances are cached so that the state is not serialized for every request
+        private static final Map<String, CircuitBreaker> CACHE = new ConcurrentHashMap<>();
 
         private final String state;
 
-        public CircuitBreaker(String state) {
+        private final Map<String, String> endpoints;
+
+        private final byte[] json;
+
+        private final byte[] cbor;
+
+        private final EntityTag tag;
+
+        private final EntityTag cborTag;
+
+        private final String tagValue;
+
+        private final String cborTagValue;
+
+        private CircuitBreaker(String state, Map<String, String> endpoints, String tag) {
             this.state = state;
+            this.endpoints = endpoints;
+            StringBuilder json = new StringBuilder().append("{\"state\":\"").append(state).append('"');
+            if (endpoints != null) {
+                json.append(",\"endpoints\":{");
+                for (Iterator<Entry<String, String>> iterator = endpoints.entrySet().iterator(); iterator.hasNext();) {
+                    Entry<String, String> entry = iterator.next();
+                    json.append('"').append(entry.getKey()).append("\":\"").append(entry.getValue()).append('"');
+                    if (iterator.hasNext()) {
+                        json.append(',');
+                    }
+                }
+                json.append('}');
+            }
+            this.json = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            this.cbor = toCbor(state, endpoints);
+            this.tag = new EntityTag(tag);
+            this.tagValue = this.tag.toString();
+            this.cborTag = new EntityTag(tag + "-cbor");
+            this.cborTagValue = this.cborTag.toString();
         }
 
         public String getState() {
             return state;
         }
 
+        /**
+         *
+         * @return the state of each endpoint or <code>null</code> if there is only one endpoint
+         */
+        public Map<String, String> getEndpoints() {
+            return endpoints;
+        }
+
+        EntityTag getTag(boolean cbor) {
+            return cbor ? cborTag : tag;
+        }
+
+        /**
+         * The header is parsed as defined in RFC 7232, i.e. it may be <code>*</code> or a comma-separated list of entity tags which are compared
+         * using the weak comparison.
+         *
+         * @param value the value of the <code>If-None-Match</code> header
+         * @param cbor
+         * @return <code>true</code> if the given header value matches this state
+         */
+        boolean matches(String value, boolean cbor) {
+            String current = cbor ? cborTagValue : tagValue;
+            for (String candidate : value.split(",")) {
+                candidate = candidate.trim();
+                if ("*".equals(candidate)) {
+                    return true;
+                }
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (current.equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The entity tag identifies the aggregated state, the state of each endpoint and the configured endpoints, e.g.
+         * <code>"closed-co-1f2a3b"</code>. The endpoints part is derived from the endpoint URIs, i.e. the tag is the same on all the replicas and
+         * across restarts.
+         *
+         * @param endpoints
+         * @param states
+         * @return the circuit breaker state
+         */
+        static CircuitBreaker of(List<NameServiceEndpoint> endpoints, String states) {
+            String state = states.indexOf(CircuitBreakerStatePublisher.CLOSED) == -1 ? "open" : "closed";
+            StringBuilder uris = new StringBuilder();
+            for (NameServiceEndpoint endpoint : endpoints) {
+                uris.append(endpoint.getUri()).append(',');
+            }
+            // String.hashCode() is specified, i.e. stable
+            String tag = state + "-" + states + "-" + Integer.toHexString(uris.toString().hashCode());
+            CircuitBreaker circuitBreaker = CACHE.get(tag);
+            if (circuitBreaker == null) {
+                Map<String, String> values = new LinkedHashMap<>();
+                for (int i = 0; i < states.length(); i++) {
+                    values.put(endpoints.get(i).toString(), states.charAt(i) == CircuitBreakerStatePublisher.OPEN ? "open" : "closed");
+                }
+                if (CACHE.size() >= MAX_CACHED) {
+                    CACHE.clear();
+                }
+                circuitBreaker = new CircuitBreaker(state, Collections.unmodifiableMap(values), tag);
+                CACHE.put(tag, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+
+        private static byte[] toCbor(String state, Map<String, String> endpoints) {
+            Map<String, Object> value = new LinkedHashMap<>();
+            value.put("state", state);
+            if (endpoints != null) {
+                value.put("endpoints", endpoints);
+            }
+            try {
+                return CborProvider.MAPPER.writeValueAsBytes(value);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
     }
 
 }
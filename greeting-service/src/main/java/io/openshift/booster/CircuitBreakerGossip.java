@@ -0,0 +1,470 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+
+/**
+ * Shares the name service error windows between the greeting service replicas so that the circuit trips cluster-wide, i.e. each replica does not
+ * have to burn through its own volume threshold of failures. If {@link GreetingProperties#GOSSIP} is set each replica periodically sends the number
+ * of requests and errors of every {@link NameServiceEndpoint} since the last round. The reports of all the replicas are added to a rolling window.
+ * If the window exceeds the volume threshold and the error threshold of the command the circuit is forced open via
+ * <code>hystrix.command.&lt;key&gt;.circuitBreaker.forceOpen</code>.
+ * <p>
+ * After the sleep window plus a random jitter (up to half of the sleep window, so that the replicas do not release the circuit at the same moment)
+ * a single probe request is sent to the endpoint. If the probe succeeds the circuit is released and the window is discarded, i.e. only fresh errors
+ * may trip the circuit again. Otherwise, the circuit stays forced open for another sleep window.
+ * <p>
+ * Note that the gossip messages are neither authenticated nor encrypted. Any host able to send to the multicast group can force the circuits open,
+ * i.e. the gossip should only be enabled on a trusted network.
+ *
+ * @see GossipTransport
+ */
+@ApplicationScoped
+public class CircuitBreakerGossip {
+
+    static final String MULTICAST = "multicast";
+
+    static final String IN_PROCESS = "in-process";
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreakerGossip.class.getName());
+
+    // Identifies the message format
+    private static final int MAGIC = 0x43424701;
+
+    private static final HystrixEventType[] ERROR_TYPES = { HystrixEventType.FAILURE, HystrixEventType.TIMEOUT, HystrixEventType.THREAD_POOL_REJECTED,
+            HystrixEventType.SEMAPHORE_REJECTED };
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ManagedScheduledExecutorService executor;
+
+    // The default factory is used
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    @Inject
+    Client client;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Command key -> requests and errors reported by all the replicas
+    private final ConcurrentMap<String, ErrorWindow> windows = new ConcurrentHashMap<>();
+
+    // Command key -> the time the forced circuit is released
+    private final ConcurrentMap<String, Long> forced = new ConcurrentHashMap<>();
+
+    // Node id -> the time the last message was received
+    private final ConcurrentMap<String, Long> peers = new ConcurrentHashMap<>();
+
+    // Command key -> cumulative requests and errors already reported, only accessed by the gossip task
+    private final Map<String, long[]> reported = new HashMap<>();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder trips = new LongAdder();
+
+    private volatile GossipTransport transport;
+
+    private ScheduledFuture<?> task;
+
+    // Initialize eagerly
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+    }
+
+    @PostConstruct
+    void start() {
+        if (!GreetingProperties.GOSSIP.get()) {
+            return;
+        }
+        try {
+            start(createTransport());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to start the circuit breaker gossip", e);
+            return;
+        }
+        long interval = GreetingProperties.GOSSIP_INTERVAL.get();
+        task = executor.scheduleWithFixedDelay(this::gossip, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The gossip rounds are not scheduled, see also {@link #gossip()}.
+     *
+     * @param transport
+     * @throws IOException
+     */
+    void start(GossipTransport transport) throws IOException {
+        transport.start(this::receive);
+        this.transport = transport;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (task != null) {
+            task.cancel(false);
+        }
+        if (transport != null) {
+            transport.close();
+        }
+        for (String key : forced.keySet()) {
+            release(key);
+        }
+    }
+
+    boolean isActive() {
+        return transport != null;
+    }
+
+    /**
+     *
+     * @return the number of replicas heard from within the window
+     */
+    int getPeerCount() {
+        long since = System.currentTimeMillis() - GreetingProperties.GOSSIP_WINDOW.get();
+        int count = 0;
+        for (Long last : peers.values()) {
+            if (last >= since) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    long getSentCount() {
+        return sent.sum();
+    }
+
+    long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     *
+     * @return the number of times a circuit was forced open
+     */
+    long getTripCount() {
+        return trips.sum();
+    }
+
+    Set<String> getForced() {
+        return Collections.unmodifiableSet(forced.keySet());
+    }
+
+    /**
+     *
+     * @param key
+     * @return the number of requests and errors in the current window
+     */
+    long[] getWindow(String key) {
+        ErrorWindow window = windows.get(key);
+        return window != null ? window.sum(System.currentTimeMillis()) : new long[2];
+    }
+
+    /**
+     *
+     * @param total
+     * @param errors
+     * @param volumeThreshold
+     * @param errorThresholdPercentage
+     * @return <code>true</code> if the circuit should be open, the same logic as in <code>HystrixCircuitBreakerImpl</code> is used
+     */
+    static boolean isTripped(long total, long errors, int volumeThreshold, int errorThresholdPercentage) {
+        if (total == 0 || total < volumeThreshold) {
+            return false;
+        }
+        return (int) ((double) errors / total * 100) >= errorThresholdPercentage;
+    }
+
+    /**
+     * Message format: magic, node id, number of entries and then the command key, requests and errors of each entry.
+     *
+     * @param counts command key -> requests and errors
+     * @return the message
+     */
+    byte[] encode(Map<String, long[]> counts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + counts.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(nodeId);
+            out.writeInt(counts.size());
+            for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    void receive(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            String sender = in.readUTF();
+            if (nodeId.equals(sender)) {
+                // Multicast loopback
+                return;
+            }
+            long now = System.currentTimeMillis();
+            peers.put(sender, now);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                long total = in.readLong();
+                long errors = in.readLong();
+                if (!forced.containsKey(key)) {
+                    getOrCreateWindow(key).add(now, total, errors);
+                }
+            }
+            received.increment();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Invalid circuit breaker gossip message ignored", e);
+        }
+    }
+
+    /**
+     * A single gossip round - report the local deltas and check the cluster-wide window of each endpoint.
+     */
+    void gossip() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, long[]> deltas = new LinkedHashMap<>();
+            for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+                HystrixCommandMetrics metrics = HystrixCommandMetrics.getInstance(endpoint.getKey());
+                if (metrics == null) {
+                    // No command executed yet, i.e. nothing to report - the peers may still trip the circuit
+                    check(endpoint, HystrixPropertiesFactory.getCommandProperties(endpoint.getKey(), endpoint.getCommandDefaults()), now);
+                    continue;
+                }
+                String key = endpoint.getKey().name();
+                long errors = 0;
+                for (HystrixEventType type : ERROR_TYPES) {
+                    errors += metrics.getCumulativeCount(type);
+                }
+                long total = errors + metrics.getCumulativeCount(HystrixEventType.SUCCESS);
+                long[] previous = reported.put(key, new long[] { total, errors });
+                // The first round only establishes the baseline
+                if (previous != null && total > previous[0] && !forced.containsKey(key)) {
+                    long[] delta = new long[] { total - previous[0], errors - previous[1] };
+                    getOrCreateWindow(key).add(now, delta[0], delta[1]);
+                    deltas.put(key, delta);
+                }
+                check(endpoint, metrics.getProperties(), now);
+            }
+            if (!deltas.isEmpty()) {
+                transport.send(encode(deltas));
+                sent.increment();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Circuit breaker gossip round failed", e);
+        }
+    }
+
+    private void check(NameServiceEndpoint endpoint, HystrixCommandProperties properties, long now) {
+        String key = endpoint.getKey().name();
+        Long releaseAt = forced.get(key);
+        if (releaseAt != null) {
+            if (now >= releaseAt) {
+                if (probe(endpoint)) {
+                    release(key);
+                } else {
+                    forced.put(key, getReleaseTime(now, properties.circuitBreakerSleepWindowInMilliseconds().get()));
+                    LOGGER.info("Probe failed, forced circuit not released [key: " + key + "]");
+                }
+            }
+            return;
+        }
+        ErrorWindow window = windows.get(key);
+        if (window == null || endpoint.isOpen()) {
+            // Already open locally - the local circuit breaker takes care of the recovery
+            return;
+        }
+        long[] counts = window.sum(now);
+        if (isTripped(counts[0], counts[1], properties.circuitBreakerRequestVolumeThreshold().get(),
+                properties.circuitBreakerErrorThresholdPercentage().get())) {
+            forced.put(key, getReleaseTime(now, properties.circuitBreakerSleepWindowInMilliseconds().get()));
+            ConfigurationManager.getConfigInstance().setProperty(forceOpenProperty(key), true);
+            trips.increment();
+            LOGGER.info("Circuit forced open by the cluster-wide error window [key: " + key + ", requests: " + counts[0] + ", errors: " + counts[1]
+                    + "]");
+        }
+    }
+
+    /**
+     *
+     * @param now
+     * @param sleepWindow
+     * @return the time the forced circuit should be probed, the sleep window plus up to half of the sleep window
+     */
+    static long getReleaseTime(long now, long sleepWindow) {
+        return now + sleepWindow + ThreadLocalRandom.current().nextLong(sleepWindow / 2 + 1);
+    }
+
+    /**
+     * The probe bypasses the forced circuit, i.e. it's the only request sent to the endpoint.
+     *
+     * @param endpoint
+     * @return <code>true</code> if the endpoint responded successfully
+     */
+    private boolean probe(NameServiceEndpoint endpoint) {
+        endpoint.acquire();
+        try {
+            Response response = client.target(endpoint.getUri()).request(MediaType.TEXT_PLAIN_TYPE).get();
+            try {
+                return response.getStatus() == 200;
+            } finally {
+                response.close();
+            }
+        } catch (ProcessingException e) {
+            return false;
+        } finally {
+            endpoint.release();
+        }
+    }
+
+    private void release(String key) {
+        // Discard the errors reported before the circuit was forced open
+        windows.remove(key);
+        ConfigurationManager.getConfigInstance().clearProperty(forceOpenProperty(key));
+        forced.remove(key);
+        LOGGER.info("Forced circuit released [key: " + key + "]");
+    }
+
+    private ErrorWindow getOrCreateWindow(String key) {
+        return windows.computeIfAbsent(key, k -> new ErrorWindow(GreetingProperties.GOSSIP_WINDOW.get()));
+    }
+
+    private GossipTransport createTransport() throws IOException {
+        String transport = GreetingProperties.GOSSIP_TRANSPORT.get();
+        if (IN_PROCESS.equalsIgnoreCase(transport)) {
+            return new InProcessGossipTransport();
+        }
+        if (!MULTICAST.equalsIgnoreCase(transport)) {
+            LOGGER.warning("Unsupported gossip transport " + transport + " - using " + MULTICAST);
+        }
+        return new MulticastGossipTransport(InetAddress.getByName(GreetingProperties.GOSSIP_GROUP.get()), GreetingProperties.GOSSIP_PORT.get(),
+                threadFactory);
+    }
+
+    private static String forceOpenProperty(String key) {
+        return "hystrix.command." + key + ".circuitBreaker.forceOpen";
+    }
+
+    /**
+     * Requests and errors in a rolling time window, split into buckets.
+     */
+    static final class ErrorWindow {
+
+        private static final int BUCKETS = 10;
+
+        private final long bucketLength;
+
+        private final long[] starts = new long[BUCKETS];
+
+        private final long[] totals = new long[BUCKETS];
+
+        private final long[] errors = new long[BUCKETS];
+
+        ErrorWindow(long length) {
+            this.bucketLength = Math.max(1, length / BUCKETS);
+        }
+
+        synchronized void add(long now, long total, long errors) {
+            int idx = bucket(now);
+            this.totals[idx] += total;
+            this.errors[idx] += errors;
+        }
+
+        /**
+         *
+         * @param now
+         * @return the number of requests and errors
+         */
+        synchronized long[] sum(long now) {
+            long since = now - bucketLength * BUCKETS;
+            long[] sum = new long[2];
+            for (int i = 0; i < BUCKETS; i++) {
+                if (starts[i] > since) {
+                    sum[0] += totals[i];
+                    sum[1] += errors[i];
+                }
+            }
+            return sum;
+        }
+
+        private int bucket(long now) {
+            long start = now - now % bucketLength;
+            int idx = (int) ((now / bucketLength) % BUCKETS);
+            if (starts[idx] != start) {
+                starts[idx] = start;
+                totals[idx] = 0;
+                errors[idx] = 0;
+            }
+            return idx;
+        }
+
+    }
+
+}
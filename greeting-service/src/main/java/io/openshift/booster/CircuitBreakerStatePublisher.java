@@ -0,0 +1,211 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
+
+/**
+ * Watches the {@link NameCommand} circuit breakers and publishes the state to the WebSocket clients when it changes. If multiple name service
+ * endpoints are configured the circuit is considered open if the circuits of all the endpoints are open. The state is checked whenever Hystrix
+ * notifies a {@link NameCommand} event which may flip a circuit (see {@link #mayChangeState(HystrixEventType, String)}) and periodically - Hystrix
+ * may open the circuit asynchronously, i.e. when no event is fired. The current
+ * state is also published periodically as a heartbeat. Listeners registered via {@link #addListener(Runnable)} are notified once the state of
+ * any endpoint changes.
+ *
+ * @see HystrixConfig
+ */
+@ApplicationScoped
+public class CircuitBreakerStatePublisher {
+
+    static final char CLOSED = 'c';
+
+    static final char OPEN = 'o';
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ManagedScheduledExecutorService executor;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    // E.g. "co" - the first endpoint is closed and the second one is open
+    private final AtomicReference<String> state = new AtomicReference<>();
+
+    private final HystrixEventNotifier eventNotifier = new HystrixEventNotifier() {
+
+        @Override
+        public void markEvent(HystrixEventType eventType, HystrixCommandKey key) {
+            // The notifier is called on the request thread, i.e. the other events are left to the scheduled check
+            if (mayChangeState(eventType, state.get()) && balancer.isEndpointKey(key)) {
+                checkState();
+            }
+        }
+
+    };
+
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+    private volatile long lastPublished;
+
+    private ScheduledFuture<?> check;
+
+    @PostConstruct
+    void init() {
+        CircuitBreakerWebSocketEndpoint.BROADCASTER.start(executor);
+        long interval = GreetingProperties.CB_STATE_CHECK_INTERVAL.get();
+        check = executor.scheduleWithFixedDelay(this::checkOrHeartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (check != null) {
+            check.cancel(false);
+        }
+        CircuitBreakerWebSocketEndpoint.BROADCASTER.stop();
+    }
+
+    HystrixEventNotifier getEventNotifier() {
+        return eventNotifier;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if the circuits of all the endpoints are open
+     */
+    boolean isOpen() {
+        for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+            if (!endpoint.isOpen()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return the state of each endpoint, i.e. {@link #OPEN} or {@link #CLOSED}, in the order of {@link NameServiceBalancer#getEndpoints()}
+     */
+    String getEndpointStates() {
+        return getStates(balancer.getEndpoints());
+    }
+
+    static String getStates(List<NameServiceEndpoint> endpoints) {
+        char[] states = new char[endpoints.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = endpoints.get(i).isOpen() ? OPEN : CLOSED;
+        }
+        return new String(states);
+    }
+
+    /**
+     * A failure may open a circuit and a success may close an open circuit. The other events, e.g. a fallback or an emitted value, always follow
+     * one of these and are ignored.
+     *
+     * @param eventType
+     * @param states the last checked state of each endpoint
+     * @return <code>true</code> if the event may change the state of an endpoint
+     */
+    static boolean mayChangeState(HystrixEventType eventType, String states) {
+        switch (eventType) {
+            case FAILURE:
+            case TIMEOUT:
+            case THREAD_POOL_REJECTED:
+            case SEMAPHORE_REJECTED:
+            case SHORT_CIRCUITED:
+                return true;
+            case SUCCESS:
+                return states == null || states.indexOf(OPEN) != -1;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The listener is notified only once and then removed.
+     *
+     * @param listener
+     */
+    void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void checkOrHeartbeat() {
+        if (!checkState() && System.currentTimeMillis() - lastPublished >= GreetingProperties.CB_STATE_HEARTBEAT_INTERVAL.get()) {
+            publish(isOpen(state.get()));
+        }
+    }
+
+    /**
+     *
+     * @return <code>true</code> if the state changed, <code>false</code> otherwise
+     */
+    private boolean checkState() {
+        String current = getEndpointStates();
+        String previous = state.getAndSet(current);
+        if (!current.equals(previous)) {
+            boolean open = isOpen(current);
+            if (previous == null || open != isOpen(previous)) {
+                publish(open);
+            }
+            if (!listeners.isEmpty()) {
+                executor.execute(this::notifyListeners);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyListeners() {
+        for (Iterator<Runnable> iterator = listeners.iterator(); iterator.hasNext();) {
+            Runnable listener = iterator.next();
+            iterator.remove();
+            listener.run();
+        }
+    }
+
+    private static boolean isOpen(String states) {
+        return states != null && states.indexOf(CLOSED) == -1;
+    }
+
+    private void publish(boolean open) {
+        lastPublished = System.currentTimeMillis();
+        CircuitBreakerWebSocketEndpoint.send(open ? "isOpen:true" : "isOpen:false");
+    }
+
+}
@@ -17,10 +17,6 @@
  */
 package io.openshift.booster;
 
-import java.io.IOException;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
 import javax.websocket.CloseReason;
 import javax.websocket.EndpointConfig;
 import javax.websocket.OnClose;
@@ -35,26 +31,26 @@ import javax.websocket.server.ServerEndpoint;
 @ServerEndpoint("/cb-ws")
 public class CircuitBreakerWebSocketEndpoint {
 
-    static Queue<Session> queue = new ConcurrentLinkedQueue<>();
+    // Only the current state is relevant, started by CircuitBreakerStatePublisher
+    static final WebSocketBroadcaster BROADCASTER = new WebSocketBroadcaster(true);
 
+    /**
+     * The message is sent asynchronously, this method never blocks.
+     *
+     * @param msg
+     */
     static void send(String msg) {
-        for (Session session : queue) {
-            try {
-                session.getBasicRemote().sendText(msg);
-            } catch (IOException e) {
-                throw new RuntimeException("Cannot send message using " + session, e);
-            }
-        }
+        BROADCASTER.broadcast(msg);
     }
 
     @OnOpen
     public void open(Session session, EndpointConfig conf) {
-        queue.add(session);
+        BROADCASTER.add(session);
     }
 
     @OnClose
     public void close(Session session, CloseReason reason) {
-        queue.remove(session);
+        BROADCASTER.remove(session);
     }
 
 }
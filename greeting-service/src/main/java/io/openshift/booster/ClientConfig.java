@@ -17,22 +17,54 @@
  */
 package io.openshift.booster;
 
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.ws.rs.client.Client;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient4Engine;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 
 /**
- * JAX-RS client configuration.
+ * JAX-RS client configuration. The connection pool is configured through the <code>greeting.client</code> properties, see also
+ * {@link GreetingProperties}. If {@link GreetingProperties#CLIENT_PROTOCOL} is set to <code>H2C</code> the name service is invoked over cleartext
+ * HTTP/2 using {@link OkHttpClientEngine}.
+ * <p>
+ * Neither engine is truly non-blocking in RESTEasy 3.0, i.e. an async invocation holds a client thread until the name service responds. Therefore
+ * the async executor is bounded - it has at most {@link GreetingProperties#CLIENT_POOL_MAX_TOTAL} threads and
+ * {@link GreetingProperties#CLIENT_ASYNC_QUEUE_SIZE} queued invocations, and the invocations over the limit are rejected, see also
+ * {@link NameObservableCommand}.
  *
  * @author Martin Kouba
  */
-@Dependent
+@ApplicationScoped
 public class ClientConfig {
 
+    static final String PROTOCOL_H2C = "H2C";
+
+    // The default factory is used
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+
     /**
      * Producer (CDI bean) for a shared {@link Client}.
      *
@@ -42,12 +74,65 @@ public class ClientConfig {
     @Produces
     Client produceJaxrsClient() {
         ResteasyClientBuilder builder = new ResteasyClientBuilder();
-        builder.connectionPoolSize(5);
+        builder.register(new CborProvider());
+        // RESTEasy performs the blocking call of an async invocation on this executor, i.e. a thread is held per invocation in progress - there is no
+        // point in having more threads than pooled connections, the executor is shut down when the client is closed
+        builder.asyncExecutor(createAsyncExecutor(), true);
+        if (PROTOCOL_H2C.equals(GreetingProperties.CLIENT_PROTOCOL.get())) {
+            builder.httpEngine(createOkHttpEngine());
+        } else {
+            builder.httpEngine(createApacheEngine());
+        }
         return builder.build();
     }
 
+    /**
+     *
+     * @return the connection pool statistics or <code>null</code> if no client was created yet or HTTP/2 is used
+     */
+    PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager connectionManager = this.connectionManager;
+        return connectionManager != null ? connectionManager.getTotalStats() : null;
+    }
+
     void disposeJaxrsClient(@Disposes Client client) {
         client.close();
     }
 
+    private ThreadPoolExecutor createAsyncExecutor() {
+        int threads = GreetingProperties.CLIENT_POOL_MAX_TOTAL.get();
+        // The default policy throws RejectedExecutionException if the queue is full
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(GreetingProperties.CLIENT_ASYNC_QUEUE_SIZE.get()), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private ClientHttpEngine createOkHttpEngine() {
+        // HTTP/2 without the upgrade, i.e. the name service must support h2c with prior knowledge
+        OkHttpClient client = new OkHttpClient.Builder().protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+                .connectionPool(new ConnectionPool(GreetingProperties.CLIENT_POOL_MAX_PER_ROUTE.get(), GreetingProperties.CLIENT_IDLE_TIMEOUT.get(),
+                        TimeUnit.MILLISECONDS))
+                .connectTimeout(GreetingProperties.CLIENT_CONNECT_TIMEOUT.get(), TimeUnit.MILLISECONDS)
+                .readTimeout(GreetingProperties.CLIENT_SOCKET_TIMEOUT.get(), TimeUnit.MILLISECONDS).retryOnConnectionFailure(false).build();
+        return new OkHttpClientEngine(client);
+    }
+
+    private ClientHttpEngine createApacheEngine() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(GreetingProperties.CLIENT_CONNECTION_TTL.get(),
+                TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(GreetingProperties.CLIENT_POOL_MAX_TOTAL.get());
+        connectionManager.setDefaultMaxPerRoute(GreetingProperties.CLIENT_POOL_MAX_PER_ROUTE.get());
+
+        RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(GreetingProperties.CLIENT_CONNECT_TIMEOUT.get())
+                .setSocketTimeout(GreetingProperties.CLIENT_SOCKET_TIMEOUT.get())
+                .setConnectionRequestTimeout(GreetingProperties.CLIENT_CONNECTION_REQUEST_TIMEOUT.get()).build();
+
+        // Connections are kept alive as long as the server allows, idle and expired connections are evicted by a background thread
+        CloseableHttpClient httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections().evictIdleConnections(GreetingProperties.CLIENT_IDLE_TIMEOUT.get(), TimeUnit.MILLISECONDS).build();
+        this.connectionManager = connectionManager;
+        return new ApacheHttpClient4Engine(httpClient, true);
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the {@link CircuitBreakerGossip} messages to the other greeting service replicas. A message sent by a replica must not be delivered back
+ * to the same replica.
+ *
+ * @see MulticastGossipTransport
+ * @see InProcessGossipTransport
+ */
+interface GossipTransport {
+
+    /**
+     *
+     * @param receiver consumes the messages sent by the other replicas
+     * @throws IOException
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * The delivery is not guaranteed.
+     *
+     * @param message
+     * @throws IOException
+     */
+    void send(byte[] message) throws IOException;
+
+    void close();
+
+}
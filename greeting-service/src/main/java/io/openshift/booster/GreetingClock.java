@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Provides the current local time string with millisecond resolution, e.g. <code>10:15:30.123</code>. The string is computed at most once per
+ * millisecond and reused by all the greetings created within the same millisecond.
+ */
+final class GreetingClock {
+
+    private static volatile Tick last = new Tick(Long.MIN_VALUE, null);
+
+    private GreetingClock() {
+    }
+
+    /**
+     *
+     * @return the current time as returned by {@link LocalTime#toString()}, truncated to milliseconds
+     */
+    static String now() {
+        long millis = System.currentTimeMillis();
+        Tick tick = last;
+        if (tick.millis != millis) {
+            tick = new Tick(millis, Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalTime().toString());
+            last = tick;
+        }
+        return tick.value;
+    }
+
+    private static final class Tick {
+
+        private final long millis;
+
+        private final String value;
+
+        Tick(long millis, String value) {
+            this.millis = millis;
+            this.value = value;
+        }
+
+    }
+
+}
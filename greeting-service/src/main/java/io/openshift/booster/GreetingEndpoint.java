@@ -17,13 +17,18 @@
  */
 package io.openshift.booster;
 
-import java.time.LocalTime;
-
 import javax.inject.Inject;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.client.Client;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.netflix.hystrix.HystrixThreadPoolKey;
 
 /**
  *
@@ -33,18 +38,55 @@ import javax.ws.rs.client.Client;
 public class GreetingEndpoint {
 
     @Inject
-    Client client;
+    NameService nameService;
+
+    @Inject
+    GreetingMetrics metrics;
+
+    @Inject
+    CallerBulkheads bulkheads;
 
+    /**
+     * If the bulkheads are active (see {@link CallerBulkheads#isActive()}) the request is classified using the {@value CallerBulkheads#API_KEY_HEADER} or
+     * {@value CallerBulkheads#CALLER_CLASS_HEADER} header and may be rejected with <code>503</code> if the name service thread pools approach
+     * saturation.
+     *
+     * @param apiKey
+     * @param callerClass
+     * @param asyncResponse
+     */
     @GET
     @Path("/greeting")
-    @Produces("application/json")
-    public Greeting greeting() {
-        NameCommand command = new NameCommand(client);
-        Greeting greeting = new Greeting(String.format("Hello, %s!", command.execute()));
-        CircuitBreakerWebSocketEndpoint.send("isOpen:" + command.isCircuitBreakerOpen());
-        return greeting;
+    @Produces({ "application/json", CborProvider.APPLICATION_CBOR })
+    public void greeting(@HeaderParam(CallerBulkheads.API_KEY_HEADER) String apiKey, @HeaderParam(CallerBulkheads.CALLER_CLASS_HEADER) String callerClass,
+            @Suspended AsyncResponse asyncResponse) {
+        long start = System.nanoTime();
+        HystrixThreadPoolKey threadPoolKey = NameCommand.THREAD_POOL_KEY;
+        if (bulkheads.isActive()) {
+            String classified = bulkheads.classify(apiKey, callerClass);
+            if (!bulkheads.admit(classified)) {
+                asyncResponse.resume(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, 1).build());
+                return;
+            }
+            threadPoolKey = bulkheads.getThreadPoolKey(classified);
+        }
+        if (GreetingProperties.ASYNC.get()) {
+            // The response is resumed once the name service responds - no worker thread is blocked in the meantime but the client async executor
+            // thread is, see also ClientConfig
+            nameService.observeName().subscribe(name -> resume(asyncResponse, name, start), e -> asyncResponse.resume(e));
+        } else {
+            resume(asyncResponse, nameService.getName(threadPoolKey), start);
+        }
+    }
+
+    private void resume(AsyncResponse asyncResponse, String name, long start) {
+        asyncResponse.resume(new Greeting("Hello, " + name + "!"));
+        metrics.recordGreeting(System.nanoTime() - start);
     }
 
+    /**
+     * The JSON representation is written by {@link GreetingWriter}.
+     */
     static class Greeting {
 
         private final String content;
@@ -53,7 +95,8 @@ public class GreetingEndpoint {
 
         public Greeting(String content) {
             this.content = content;
-            this.time = LocalTime.now().toString();
+            // Reused within the same millisecond
+            this.time = GreetingClock.now();
         }
 
         public String getContent() {
@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Holds the latency recorders for the name service invocations and the greetings. The histograms are snapshotted every second and the rolling
+ * window covers {@link #WINDOW_SIZE} seconds.
+ *
+ * @see MetricsEndpoint
+ */
+@ApplicationScoped
+public class GreetingMetrics {
+
+    static final int WINDOW_SIZE = 10;
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ManagedScheduledExecutorService executor;
+
+    private final LatencyRecorder nameLatency = new LatencyRecorder(WINDOW_SIZE);
+
+    private final LatencyRecorder greetingLatency = new LatencyRecorder(WINDOW_SIZE);
+
+    private ScheduledFuture<?> snapshot;
+
+    @PostConstruct
+    void init() {
+        snapshot = executor.scheduleAtFixedRate(() -> {
+            nameLatency.snapshot();
+            greetingLatency.snapshot();
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (snapshot != null) {
+            snapshot.cancel(false);
+        }
+    }
+
+    void recordName(long nanos) {
+        nameLatency.record(nanos);
+    }
+
+    void recordGreeting(long nanos) {
+        greetingLatency.record(nanos);
+    }
+
+    LatencyRecorder getNameLatency() {
+        return nameLatency;
+    }
+
+    LatencyRecorder getGreetingLatency() {
+        return greetingLatency;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.config.DynamicDoubleProperty;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.config.DynamicLongProperty;
+import com.netflix.config.DynamicPropertyFactory;
+import com.netflix.config.DynamicStringProperty;
+
+/**
+ * Greeting service configuration. The properties are resolved through Archaius, i.e. the same way Hystrix resolves its own properties - they can be
+ * set in <code>project-defaults.yml</code> or overridden with system properties.
+ */
+final class GreetingProperties {
+
+    /**
+     * If set to <code>true</code> the greeting is computed asynchronously and the name service is invoked through {@link NameObservableCommand}.
+     */
+    static final DynamicBooleanProperty ASYNC = booleanProperty("greeting.async", false);
+
+    /**
+     * If set to <code>true</code> concurrent name requests are collapsed into a single name service invocation, see also {@link NameCollapser}.
+     */
+    static final DynamicBooleanProperty COLLAPSE = booleanProperty("greeting.collapse", false);
+
+    /**
+     * If set to <code>true</code> the name service results are cached, see also {@link NameCache}.
+     */
+    static final DynamicBooleanProperty CACHE = booleanProperty("greeting.cache.enabled", false);
+
+    /**
+     * The time after which a cached name is considered stale and refreshed in the background.
+     */
+    static final DynamicLongProperty CACHE_TTL = longProperty("greeting.cache.ttlInMilliseconds", 1000);
+
+    static final DynamicIntProperty CACHE_MAX_SIZE = intProperty("greeting.cache.maxSize", 100);
+
+    static final DynamicIntProperty CLIENT_POOL_MAX_TOTAL = intProperty("greeting.client.pool.maxTotal", 50);
+
+    static final DynamicIntProperty CLIENT_POOL_MAX_PER_ROUTE = intProperty("greeting.client.pool.maxPerRoute", 50);
+
+    /**
+     * The max number of async invocations waiting for a client thread, an invocation over the limit is rejected and the fallback is used. Only
+     * read when the client is created.
+     */
+    static final DynamicIntProperty CLIENT_ASYNC_QUEUE_SIZE = intProperty("greeting.client.async.queueSize", 100);
+
+    /**
+     * The total time to live of a pooled connection, a non-positive value means infinite.
+     */
+    static final DynamicLongProperty CLIENT_CONNECTION_TTL = longProperty("greeting.client.pool.connectionTtlInMilliseconds", -1);
+
+    /**
+     * A pooled connection idle for longer than this is evicted. It's also the eviction interval.
+     */
+    static final DynamicLongProperty CLIENT_IDLE_TIMEOUT = longProperty("greeting.client.pool.idleTimeoutInMilliseconds", 30000);
+
+    static final DynamicIntProperty CLIENT_CONNECT_TIMEOUT = intProperty("greeting.client.connectTimeoutInMilliseconds", 1000);
+
+    static final DynamicIntProperty CLIENT_SOCKET_TIMEOUT = intProperty("greeting.client.socketTimeoutInMilliseconds", 2000);
+
+    /**
+     * <code>HTTP_1_1</code> or <code>H2C</code>, i.e. cleartext HTTP/2. Only read when the client is created.
+     */
+    static final DynamicStringProperty CLIENT_PROTOCOL = stringProperty("greeting.client.protocol", "HTTP_1_1");
+
+    /**
+     * The max time to wait for a connection from the pool.
+     */
+    static final DynamicIntProperty CLIENT_CONNECTION_REQUEST_TIMEOUT = intProperty("greeting.client.connectionRequestTimeoutInMilliseconds", 1000);
+
+    /**
+     * How often the circuit breaker state is checked for changes, see also {@link CircuitBreakerStatePublisher}.
+     */
+    static final DynamicLongProperty CB_STATE_CHECK_INTERVAL = longProperty("greeting.cbState.checkIntervalInMilliseconds", 100);
+
+    /**
+     * How often the current circuit breaker state is published even if it did not change.
+     */
+    static final DynamicLongProperty CB_STATE_HEARTBEAT_INTERVAL = longProperty("greeting.cbState.heartbeatIntervalInMilliseconds", 5000);
+
+    /**
+     * The isolation strategy of all the name service commands, i.e. <code>THREAD</code> or <code>SEMAPHORE</code>. The commands of an endpoint
+     * share the command key and so the strategy cannot differ per command. Note that Hystrix only reads the default value when the first command
+     * for the key is created - use <code>hystrix.command.&lt;key&gt;.execution.isolation.strategy</code> to change it at runtime.
+     */
+    static final DynamicStringProperty NAME_ISOLATION = stringProperty("greeting.name.isolation", "THREAD");
+
+    /**
+     * A comma-separated list of name service URIs, e.g. <code>http://name-1:8080/api/name,http://name-2:8080/api/name</code>. If not set
+     * {@link NameCommand#NAME_SERVICE_URI} is used. See also {@link NameServiceBalancer}.
+     */
+    static final DynamicStringProperty NAME_ENDPOINTS = stringProperty("greeting.name.endpoints", "");
+
+    /**
+     * If set to <code>true</code> and the name service commands use the semaphore isolation the max number of concurrent name service invocations
+     * is adjusted automatically, see also {@link AdaptiveConcurrencyLimit}.
+     */
+    static final DynamicBooleanProperty ADAPTIVE_LIMIT = booleanProperty("greeting.name.adaptiveLimit.enabled", false);
+
+    static final DynamicIntProperty ADAPTIVE_LIMIT_INITIAL = intProperty("greeting.name.adaptiveLimit.initial", 20);
+
+    static final DynamicIntProperty ADAPTIVE_LIMIT_MIN = intProperty("greeting.name.adaptiveLimit.min", 1);
+
+    static final DynamicIntProperty ADAPTIVE_LIMIT_MAX = intProperty("greeting.name.adaptiveLimit.max", 1000);
+
+    /**
+     * The limit is increased as long as the average latency does not exceed the target.
+     */
+    static final DynamicLongProperty ADAPTIVE_LIMIT_TARGET_LATENCY = longProperty("greeting.name.adaptiveLimit.targetLatencyInMilliseconds", 100);
+
+    static final DynamicDoubleProperty ADAPTIVE_LIMIT_BACKOFF_RATIO = doubleProperty("greeting.name.adaptiveLimit.backoffRatio", 0.9);
+
+    /**
+     * The number of completed invocations after which the limit is adjusted.
+     */
+    static final DynamicIntProperty ADAPTIVE_LIMIT_WINDOW = intProperty("greeting.name.adaptiveLimit.window", 50);
+
+    /**
+     * If set to <code>true</code> a hedge name service request is sent if the first one does not respond in time, see also {@link NameHedging}.
+     * Not used if the name cache or the collapsing is enabled.
+     */
+    static final DynamicBooleanProperty HEDGE = booleanProperty("greeting.name.hedge.enabled", false);
+
+    /**
+     * The percentile of the recent name service latency after which a hedge request is sent.
+     */
+    static final DynamicDoubleProperty HEDGE_PERCENTILE = doubleProperty("greeting.name.hedge.percentile", 95.0);
+
+    /**
+     * The min delay before a hedge request is sent, also used if there are not enough latency samples.
+     */
+    static final DynamicLongProperty HEDGE_MIN_DELAY = longProperty("greeting.name.hedge.minDelayInMilliseconds", 10);
+
+    /**
+     * The max ratio of hedge requests to all name service requests.
+     */
+    static final DynamicDoubleProperty HEDGE_BUDGET = doubleProperty("greeting.name.hedge.budget", 0.05);
+
+    /**
+     * If set to <code>true</code> a failed {@link NameCommand} invocation is retried in the thread isolation mode, see also {@link NameRetry}.
+     */
+    static final DynamicBooleanProperty RETRY = booleanProperty("greeting.name.retry.enabled", false);
+
+    /**
+     * The max number of attempts, including the first one.
+     */
+    static final DynamicIntProperty RETRY_MAX_ATTEMPTS = intProperty("greeting.name.retry.maxAttempts", 3);
+
+    static final DynamicLongProperty RETRY_INITIAL_BACKOFF = longProperty("greeting.name.retry.initialBackoffInMilliseconds", 10);
+
+    static final DynamicLongProperty RETRY_MAX_BACKOFF = longProperty("greeting.name.retry.maxBackoffInMilliseconds", 200);
+
+    /**
+     * The max ratio of retries to all name service invocations.
+     */
+    static final DynamicDoubleProperty RETRY_BUDGET = doubleProperty("greeting.name.retry.budget", 0.1);
+
+    /**
+     * If set to <code>true</code> the greeting requests are classified and each caller class uses a separate thread pool. Only applies to the
+     * synchronous invocations with the thread isolation, see also {@link CallerBulkheads#isActive()}.
+     */
+    static final DynamicBooleanProperty BULKHEAD = booleanProperty("greeting.bulkhead.enabled", false);
+
+    /**
+     * A comma-separated list of caller classes, ordered by priority.
+     */
+    static final DynamicStringProperty BULKHEAD_CLASSES = stringProperty("greeting.bulkhead.classes", "high,default,low");
+
+    static final DynamicStringProperty BULKHEAD_DEFAULT_CLASS = stringProperty("greeting.bulkhead.defaultClass", "default");
+
+    /**
+     * A comma-separated list of <code>apiKey=class</code> mappings.
+     */
+    static final DynamicStringProperty BULKHEAD_API_KEYS = stringProperty("greeting.bulkhead.apiKeys", "");
+
+    /**
+     * The saturation of the thread pools at which the lowest priority requests are rejected.
+     */
+    static final DynamicDoubleProperty BULKHEAD_SHED_THRESHOLD = doubleProperty("greeting.bulkhead.shedThreshold", 0.8);
+
+    /**
+     * If set to <code>true</code> and the JDK supports virtual threads the commands are executed on virtual threads, see also
+     * {@link VirtualThreadConcurrencyStrategy}. Only read at startup.
+     */
+    static final DynamicBooleanProperty VIRTUAL_THREADS = booleanProperty("greeting.hystrix.virtualThreads.enabled", false);
+
+    /**
+     * The max number of concurrent executions per thread pool key if virtual threads are used.
+     */
+    static final DynamicIntProperty VIRTUAL_THREADS_MAX_CONCURRENCY = intProperty("greeting.hystrix.virtualThreads.maxConcurrency", 1000);
+
+    /**
+     * The max number of concurrent <code>/api/metrics/stream</code> connections, each connection occupies a worker thread.
+     */
+    static final DynamicIntProperty METRICS_STREAM_MAX_CONNECTIONS = intProperty("greeting.metrics.stream.maxConnections", 5);
+
+    /**
+     * If set to <code>true</code> the replicas share the name service error windows, see also {@link CircuitBreakerGossip}. Only read at startup.
+     */
+    static final DynamicBooleanProperty GOSSIP = booleanProperty("greeting.gossip.enabled", false);
+
+    /**
+     * {@value CircuitBreakerGossip#MULTICAST} or {@value CircuitBreakerGossip#IN_PROCESS}.
+     */
+    static final DynamicStringProperty GOSSIP_TRANSPORT = stringProperty("greeting.gossip.transport", CircuitBreakerGossip.MULTICAST);
+
+    static final DynamicStringProperty GOSSIP_GROUP = stringProperty("greeting.gossip.multicast.group", "239.255.42.1");
+
+    static final DynamicIntProperty GOSSIP_PORT = intProperty("greeting.gossip.multicast.port", 45700);
+
+    static final DynamicLongProperty GOSSIP_INTERVAL = longProperty("greeting.gossip.intervalInMilliseconds", 500);
+
+    /**
+     * Should match <code>metrics.rollingStats.timeInMilliseconds</code> of the name commands.
+     */
+    static final DynamicLongProperty GOSSIP_WINDOW = longProperty("greeting.gossip.windowInMilliseconds", 10000);
+
+    /**
+     * If set to <code>true</code> the thread pools, client connections and hot path classes are primed at startup, see also {@link HystrixConfig}.
+     */
+    static final DynamicBooleanProperty WARMUP = booleanProperty("greeting.startup.warmup.enabled", true);
+
+    /**
+     * The number of connections opened to each name service endpoint during warmup.
+     */
+    static final DynamicIntProperty WARMUP_CONNECTIONS = intProperty("greeting.startup.warmup.connections", 4);
+
+    /**
+     * If set to <code>true</code> the properties may be changed at runtime, see also {@link AdminEndpoint}.
+     */
+    static final DynamicBooleanProperty ADMIN = booleanProperty("greeting.admin.enabled", false);
+
+    /**
+     * The bearer token required by {@link AdminEndpoint}, the endpoint is not available if not set. Should be passed as a system property, i.e. not
+     * stored in the project defaults.
+     */
+    static final DynamicStringProperty ADMIN_TOKEN = stringProperty("greeting.admin.token", "");
+
+    private GreetingProperties() {
+    }
+
+    private static DynamicStringProperty stringProperty(String name, String defaultValue) {
+        return DynamicPropertyFactory.getInstance().getStringProperty(name, defaultValue);
+    }
+
+    private static DynamicDoubleProperty doubleProperty(String name, double defaultValue) {
+        return DynamicPropertyFactory.getInstance().getDoubleProperty(name, defaultValue);
+    }
+
+    private static DynamicIntProperty intProperty(String name, int defaultValue) {
+        return DynamicPropertyFactory.getInstance().getIntProperty(name, defaultValue);
+    }
+
+    private static DynamicLongProperty longProperty(String name, long defaultValue) {
+        return DynamicPropertyFactory.getInstance().getLongProperty(name, defaultValue);
+    }
+
+    private static DynamicBooleanProperty booleanProperty(String name, boolean defaultValue) {
+        return DynamicPropertyFactory.getInstance().getBooleanProperty(name, defaultValue);
+    }
+
+}
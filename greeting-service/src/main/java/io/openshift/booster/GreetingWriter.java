@@ -0,0 +1,174 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import io.openshift.booster.GreetingEndpoint.Greeting;
+
+/**
+ * Writes the JSON representation of {@link Greeting} directly, i.e. without reflection and intermediate objects. The bytes are encoded into a
+ * per-thread buffer which is reused, and written to the entity stream at once. The output is the same as the one produced by Jackson, i.e. the
+ * control characters use the short escapes if possible and the surrogates are escaped as well.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class GreetingWriter implements MessageBodyWriter<Greeting> {
+
+    private static final byte[] CONTENT = "{\"content\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] TIME = "\",\"time\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Greeting.class.equals(type) && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public long getSize(Greeting greeting, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Greeting greeting, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        write(greeting, entityStream);
+    }
+
+    static void write(Greeting greeting, OutputStream out) throws IOException {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        buffer.append(CONTENT);
+        buffer.appendEscaped(greeting.getContent());
+        buffer.append(TIME);
+        buffer.appendEscaped(greeting.getTime());
+        buffer.append(END);
+        out.write(buffer.bytes, 0, buffer.length);
+    }
+
+    private static final class Buffer {
+
+        // Do not keep large buffers per thread
+        private static final int MAX_RETAINED = 4096;
+
+        private byte[] bytes = new byte[256];
+
+        private int length;
+
+        void reset() {
+            if (bytes.length > MAX_RETAINED) {
+                bytes = new byte[256];
+            }
+            length = 0;
+        }
+
+        void append(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        void appendEscaped(String value) {
+            // At most 6 bytes per char, i.e. an escaped control character
+            ensureCapacity(value.length() * 6);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    appendControl(c);
+                } else if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Jackson escapes each surrogate, i.e. a supplementary character is written as an escaped surrogate pair
+                    appendUnicodeEscape(c);
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void appendControl(char c) {
+            switch (c) {
+                case '\b':
+                    appendShortEscape('b');
+                    break;
+                case '\t':
+                    appendShortEscape('t');
+                    break;
+                case '\n':
+                    appendShortEscape('n');
+                    break;
+                case '\f':
+                    appendShortEscape('f');
+                    break;
+                case '\r':
+                    appendShortEscape('r');
+                    break;
+                default:
+                    appendUnicodeEscape(c);
+            }
+        }
+
+        private void appendShortEscape(char c) {
+            bytes[length++] = '\\';
+            bytes[length++] = (byte) c;
+        }
+
+        private void appendUnicodeEscape(char c) {
+            bytes[length++] = '\\';
+            bytes[length++] = 'u';
+            bytes[length++] = HEX[c >> 12];
+            bytes[length++] = HEX[(c >> 8) & 0xF];
+            bytes[length++] = HEX[(c >> 4) & 0xF];
+            bytes[length++] = HEX[c & 0xF];
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+            }
+        }
+
+    }
+
+}
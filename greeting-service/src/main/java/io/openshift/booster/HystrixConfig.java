@@ -16,50 +16,117 @@
  */
 package io.openshift.booster;
 
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.enterprise.concurrent.ContextService;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.MediaType;
 
 import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixThreadPoolKey;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.properties.HystrixProperty;
 
 /**
- * This component configures Hystrix to use a Java EE version of {@link ThreadFactory}.
+ * This component configures Hystrix to use a Java EE version of {@link ThreadFactory}, or virtual threads if
+ * {@link GreetingProperties#VIRTUAL_THREADS} is set and the JDK supports them. It also registers the {@link CircuitBreakerStatePublisher}.
+ * <p>
+ * If {@link GreetingProperties#WARMUP} is set the name service thread pools, the client connections and the hot path classes are primed in the
+ * background once the application starts, i.e. the first greetings do not pay for the lazy initialization.
  *
  * @author Martin Kouba
  */
 @ApplicationScoped
 public class HystrixConfig {
 
+    private static final Logger LOGGER = Logger.getLogger(HystrixConfig.class.getName());
+
+    /**
+     * The warmup command metrics are not exposed, see also {@link MetricsEndpoint}.
+     */
+    static final HystrixCommandGroupKey WARMUP_GROUP_KEY = HystrixCommandGroupKey.Factory.asKey("Warmup");
+
     // The default factory is used
     @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
     ManagedThreadFactory threadFactory;
 
+    // The default context service is used
+    @Resource(lookup = "java:comp/DefaultContextService")
+    ContextService contextService;
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
+    @Inject
+    CircuitBreakerStatePublisher statePublisher;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    @Inject
+    CallerBulkheads bulkheads;
+
+    @Inject
+    Client client;
+
     // Initialize eagerly
     void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (GreetingProperties.WARMUP.get()) {
+            // Do not delay the deployment
+            executor.execute(this::warmup);
+        }
     }
 
     @PostConstruct
     public void onStartup() {
-        HystrixPlugins.getInstance().registerConcurrencyStrategy(new HystrixConcurrencyStrategy() {
+        HystrixPlugins.getInstance().registerConcurrencyStrategy(createConcurrencyStrategy());
+        HystrixPlugins.getInstance().registerEventNotifier(statePublisher.getEventNotifier());
+    }
+
+    private HystrixConcurrencyStrategy createConcurrencyStrategy() {
+        if (GreetingProperties.VIRTUAL_THREADS.get()) {
+            if (VirtualThreadConcurrencyStrategy.isSupported()) {
+                return new VirtualThreadConcurrencyStrategy(contextService);
+            }
+            LOGGER.warning("Virtual threads are not supported by the current JDK - falling back to the managed thread factory");
+        }
+        return new HystrixConcurrencyStrategy() {
             @Override
             public ThreadPoolExecutor getThreadPool(HystrixThreadPoolKey threadPoolKey, HystrixProperty<Integer> corePoolSize,
                     HystrixProperty<Integer> maximumPoolSize, HystrixProperty<Integer> keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
-                return new ThreadPoolExecutor(corePoolSize.get(), maximumPoolSize.get(), keepAliveTime.get(), unit, workQueue, threadFactory);
+                ThreadPoolExecutor threadPool = new ThreadPoolExecutor(corePoolSize.get(), maximumPoolSize.get(), keepAliveTime.get(), unit, workQueue,
+                        threadFactory);
+                if (GreetingProperties.WARMUP.get()) {
+                    threadPool.prestartAllCoreThreads();
+                }
+                return threadPool;
             }
-        });
+        };
     }
 
     @PreDestroy
@@ -67,4 +134,61 @@ public class HystrixConfig {
         Hystrix.reset(1, TimeUnit.SECONDS);
     }
 
+    private void warmup() {
+        long start = System.nanoTime();
+        try {
+            // Create the thread pools and load the Hystrix and RxJava classes - a separate command key does not affect the name circuit breakers and
+            // a separate group keeps the command out of the metrics
+            List<HystrixThreadPoolKey> threadPoolKeys = new ArrayList<>();
+            threadPoolKeys.add(NameCommand.THREAD_POOL_KEY);
+            if (GreetingProperties.BULKHEAD.get()) {
+                for (String callerClass : bulkheads.getClasses()) {
+                    threadPoolKeys.add(bulkheads.getThreadPoolKey(callerClass));
+                }
+            }
+            for (HystrixThreadPoolKey threadPoolKey : threadPoolKeys) {
+                new WarmupCommand(threadPoolKey).execute();
+            }
+            GreetingWriter.write(new GreetingEndpoint.Greeting("Hello, World!"), new ByteArrayOutputStream());
+            // Load the client classes and open the connections, the name service may not be available yet
+            List<CompletableFuture<Void>> connections = new ArrayList<>();
+            for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+                URI info = endpoint.getUri().resolve("info");
+                for (int i = 0; i < GreetingProperties.WARMUP_CONNECTIONS.get(); i++) {
+                    connections.add(CompletableFuture.runAsync(() -> ping(info), executor));
+                }
+            }
+            CompletableFuture.allOf(connections.toArray(new CompletableFuture[connections.size()])).get(10, TimeUnit.SECONDS);
+            LOGGER.info("Warmup finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Warmup failed", e);
+        }
+    }
+
+    private void ping(URI uri) {
+        try {
+            client.target(uri).request(MediaType.APPLICATION_JSON_TYPE).get().close();
+        } catch (ProcessingException e) {
+            LOGGER.fine("Name service not available during warmup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shares the thread pool with {@link NameCommand} but has its own group and command key.
+     */
+    private static class WarmupCommand extends HystrixCommand<Void> {
+
+        private static final HystrixCommandKey KEY = HystrixCommandKey.Factory.asKey("Warmup");
+
+        WarmupCommand(HystrixThreadPoolKey threadPoolKey) {
+            super(Setter.withGroupKey(WARMUP_GROUP_KEY).andCommandKey(KEY).andThreadPoolKey(threadPoolKey));
+        }
+
+        @Override
+        protected Void run() {
+            return null;
+        }
+
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the messages to all the other transports started in the same JVM. Useful for tests and for running several replicas in a single process.
+ */
+final class InProcessGossipTransport implements GossipTransport {
+
+    private static final Set<InProcessGossipTransport> MEMBERS = new CopyOnWriteArraySet<>();
+
+    private volatile Consumer<byte[]> receiver;
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        MEMBERS.add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (InProcessGossipTransport member : MEMBERS) {
+            if (member != this) {
+                member.receiver.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        MEMBERS.remove(this);
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records latencies in microseconds. Recording is wait-free, i.e. it never blocks the request path. The histograms are only snapshotted by
+ * {@link #snapshot()}, which is expected to be invoked periodically by a single background thread.
+ *
+ * @see GreetingMetrics
+ */
+class LatencyRecorder {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder;
+
+    private final Histogram[] intervals;
+
+    private final Histogram total;
+
+    private int next;
+
+    private volatile Histogram rolling;
+
+    private volatile Histogram cumulative;
+
+    /**
+     *
+     * @param windowSize the number of snapshot intervals covered by the rolling histogram
+     */
+    LatencyRecorder(int windowSize) {
+        this.recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        this.intervals = new Histogram[windowSize];
+        this.total = newHistogram();
+        this.rolling = newHistogram();
+        this.cumulative = newHistogram();
+    }
+
+    void record(long nanos) {
+        recorder.recordValue(Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS)));
+    }
+
+    synchronized void snapshot() {
+        Histogram interval = recorder.getIntervalHistogram();
+        total.add(interval);
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        Histogram rolling = newHistogram();
+        for (Histogram histogram : intervals) {
+            if (histogram != null) {
+                rolling.add(histogram);
+            }
+        }
+        this.rolling = rolling;
+        this.cumulative = total.copy();
+    }
+
+    /**
+     *
+     * @return the latencies recorded within the rolling window, as of the last snapshot
+     */
+    Histogram getRolling() {
+        return rolling;
+    }
+
+    /**
+     *
+     * @return all the latencies recorded, as of the last snapshot
+     */
+    Histogram getCumulative() {
+        return cumulative;
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.HdrHistogram.Histogram;
+
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandMetrics.HealthCounts;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.HystrixThreadPoolMetrics;
+
+/**
+ * Exposes the Hystrix command metrics and the latency histograms recorded by {@link GreetingMetrics}.
+ * <ul>
+ * <li><code>/api/metrics</code> - Prometheus text format</li>
+ * <li><code>/api/metrics/stream</code> - server-sent events in the Hystrix dashboard format</li>
+ * </ul>
+ * Both endpoints only read the last published snapshots, i.e. the request path is never blocked.
+ */
+@Path("/metrics")
+public class MetricsEndpoint {
+
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4";
+
+    static final String EVENT_STREAM = "text/event-stream";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final double[] DASHBOARD_PERCENTILES = { 0, 25, 50, 75, 90, 95, 99, 99.5, 100 };
+
+    private static final HystrixEventType[] EVENT_TYPES = { HystrixEventType.SUCCESS, HystrixEventType.FAILURE, HystrixEventType.TIMEOUT,
+            HystrixEventType.SHORT_CIRCUITED, HystrixEventType.THREAD_POOL_REJECTED, HystrixEventType.SEMAPHORE_REJECTED,
+            HystrixEventType.FALLBACK_SUCCESS, HystrixEventType.FALLBACK_FAILURE };
+
+    private static final AtomicInteger STREAMS = new AtomicInteger();
+
+    @Inject
+    GreetingMetrics metrics;
+
+    @Inject
+    NameHedging hedging;
+
+    @Inject
+    CallerBulkheads bulkheads;
+
+    @Inject
+    CircuitBreakerGossip gossip;
+
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public String prometheus() {
+        StringBuilder builder = new StringBuilder();
+        appendSummary(builder, "greeting_name_latency_seconds", "Name service invocation latency", metrics.getNameLatency());
+        appendSummary(builder, "greeting_latency_seconds", "End-to-end greeting latency", metrics.getGreetingLatency());
+        builder.append("# TYPE greeting_name_hedge_requests_total counter\n");
+        appendSample(builder, "greeting_name_hedge_requests_total", "", hedging.getHedgeCount());
+        builder.append("# TYPE greeting_name_hedge_wins_total counter\n");
+        appendSample(builder, "greeting_name_hedge_wins_total", "", hedging.getWinCount());
+        builder.append("# TYPE greeting_name_hedge_rejected_total counter\n");
+        appendSample(builder, "greeting_name_hedge_rejected_total", "", hedging.getRejectedCount());
+        builder.append("# TYPE greeting_name_retries_total counter\n");
+        appendSample(builder, "greeting_name_retries_total", "", NameRetry.getRetryCount());
+        builder.append("# TYPE greeting_name_retries_rejected_total counter\n");
+        appendSample(builder, "greeting_name_retries_rejected_total", "", NameRetry.getRejectedCount());
+        builder.append("# TYPE greeting_bulkhead_shed_total counter\n");
+        for (String callerClass : bulkheads.getClasses()) {
+            appendSample(builder, "greeting_bulkhead_shed_total", "{class=\"" + callerClass + "\"}", bulkheads.getShedCount(callerClass));
+        }
+        builder.append("# TYPE greeting_gossip_peers gauge\n");
+        appendSample(builder, "greeting_gossip_peers", "", gossip.getPeerCount());
+        builder.append("# TYPE greeting_gossip_trips_total counter\n");
+        appendSample(builder, "greeting_gossip_trips_total", "", gossip.getTripCount());
+        builder.append("# TYPE hystrix_command_rolling_count gauge\n");
+        for (HystrixCommandMetrics commandMetrics : getCommandMetrics()) {
+            for (HystrixEventType eventType : EVENT_TYPES) {
+                builder.append("hystrix_command_rolling_count{command=\"").append(commandMetrics.getCommandKey().name()).append("\",event=\"")
+                        .append(eventType.name().toLowerCase(Locale.ENGLISH)).append("\"} ").append(commandMetrics.getRollingCount(eventType))
+                        .append('\n');
+            }
+        }
+        builder.append("# TYPE hystrix_command_concurrent_executions gauge\n");
+        for (HystrixCommandMetrics commandMetrics : getCommandMetrics()) {
+            appendSample(builder, "hystrix_command_concurrent_executions", commandLabels(commandMetrics),
+                    commandMetrics.getCurrentConcurrentExecutionCount());
+        }
+        builder.append("# TYPE hystrix_command_error_percentage gauge\n");
+        for (HystrixCommandMetrics commandMetrics : getCommandMetrics()) {
+            appendSample(builder, "hystrix_command_error_percentage", commandLabels(commandMetrics),
+                    commandMetrics.getHealthCounts().getErrorPercentage());
+        }
+        builder.append("# TYPE hystrix_command_circuit_open gauge\n");
+        for (HystrixCommandMetrics commandMetrics : getCommandMetrics()) {
+            appendSample(builder, "hystrix_command_circuit_open", commandLabels(commandMetrics), isCircuitBreakerOpen(commandMetrics) ? 1 : 0);
+        }
+        builder.append("# TYPE hystrix_thread_pool_queue_size gauge\n");
+        for (HystrixThreadPoolMetrics threadPoolMetrics : HystrixThreadPoolMetrics.getInstances()) {
+            appendSample(builder, "hystrix_thread_pool_queue_size", threadPoolLabels(threadPoolMetrics), threadPoolMetrics.getCurrentQueueSize());
+        }
+        builder.append("# TYPE hystrix_thread_pool_active_threads gauge\n");
+        for (HystrixThreadPoolMetrics threadPoolMetrics : HystrixThreadPoolMetrics.getInstances()) {
+            appendSample(builder, "hystrix_thread_pool_active_threads", threadPoolLabels(threadPoolMetrics), threadPoolMetrics.getCurrentActiveCount());
+        }
+        builder.append("# TYPE hystrix_thread_pool_rolling_rejected gauge\n");
+        for (HystrixThreadPoolMetrics threadPoolMetrics : HystrixThreadPoolMetrics.getInstances()) {
+            appendSample(builder, "hystrix_thread_pool_rolling_rejected", threadPoolLabels(threadPoolMetrics),
+                    threadPoolMetrics.getRollingCountThreadsRejected());
+        }
+        return builder.toString();
+    }
+
+    /**
+     *
+     * @param delay the delay between two events in milliseconds
+     * @return the server-sent events stream
+     */
+    @GET
+    @Path("/stream")
+    @Produces(EVENT_STREAM)
+    public Response stream(@QueryParam("delay") @DefaultValue("500") long delay) {
+        if (STREAMS.incrementAndGet() > GreetingProperties.METRICS_STREAM_MAX_CONNECTIONS.get()) {
+            STREAMS.decrementAndGet();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity("Max concurrent streams reached").type("text/plain").build();
+        }
+        StreamingOutput output = out -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    for (HystrixCommandMetrics commandMetrics : getCommandMetrics()) {
+                        writeEvent(out, commandJson(commandMetrics));
+                    }
+                    for (HystrixThreadPoolMetrics threadPoolMetrics : HystrixThreadPoolMetrics.getInstances()) {
+                        writeEvent(out, threadPoolJson(threadPoolMetrics));
+                    }
+                    writeEvent(out, latencyJson());
+                    TimeUnit.MILLISECONDS.sleep(Math.max(delay, 100));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // The client disconnected
+            } finally {
+                STREAMS.decrementAndGet();
+            }
+        };
+        return Response.ok(output, EVENT_STREAM).header("Cache-Control", "no-cache").build();
+    }
+
+    /**
+     *
+     * @return the command metrics except for the warmup command, see also {@link HystrixConfig#WARMUP_GROUP_KEY}
+     */
+    private static List<HystrixCommandMetrics> getCommandMetrics() {
+        List<HystrixCommandMetrics> commandMetrics = new ArrayList<>();
+        for (HystrixCommandMetrics metrics : HystrixCommandMetrics.getInstances()) {
+            if (!HystrixConfig.WARMUP_GROUP_KEY.equals(metrics.getCommandGroup())) {
+                commandMetrics.add(metrics);
+            }
+        }
+        return commandMetrics;
+    }
+
+    private static void writeEvent(OutputStream out, String json) throws IOException {
+        out.write(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void appendSummary(StringBuilder builder, String name, String help, LatencyRecorder recorder) {
+        Histogram rolling = recorder.getRolling();
+        Histogram cumulative = recorder.getCumulative();
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            builder.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(toSeconds(rolling.getValueAtPercentile(quantile * 100)))
+                    .append('\n');
+        }
+        builder.append(name).append("_count ").append(cumulative.getTotalCount()).append('\n');
+        builder.append(name).append("_sum ").append(toSeconds(cumulative.getMean() * cumulative.getTotalCount())).append('\n');
+    }
+
+    private static void appendSample(StringBuilder builder, String name, String labels, Number value) {
+        builder.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String commandLabels(HystrixCommandMetrics commandMetrics) {
+        return "{command=\"" + commandMetrics.getCommandKey().name() + "\"}";
+    }
+
+    private static String threadPoolLabels(HystrixThreadPoolMetrics threadPoolMetrics) {
+        return "{pool=\"" + threadPoolMetrics.getThreadPoolKey().name() + "\"}";
+    }
+
+    private static double toSeconds(double micros) {
+        return micros / 1000000.0;
+    }
+
+    private static boolean isCircuitBreakerOpen(HystrixCommandMetrics commandMetrics) {
+        HystrixCircuitBreaker circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(commandMetrics.getCommandKey());
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    private String latencyJson() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"type\":\"GreetingLatency\",\"name\":\"greeting-service\",\"currentTime\":").append(System.currentTimeMillis());
+        builder.append(",\"latencyName\":");
+        appendPercentiles(builder, metrics.getNameLatency().getRolling());
+        builder.append(",\"latencyGreeting\":");
+        appendPercentiles(builder, metrics.getGreetingLatency().getRolling());
+        return builder.append('}').toString();
+    }
+
+    private static void appendPercentiles(StringBuilder builder, Histogram histogram) {
+        builder.append('{');
+        for (int i = 0; i < QUANTILES.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            // Milliseconds
+            builder.append('"').append(QUANTILES[i] * 100).append("\":").append(histogram.getValueAtPercentile(QUANTILES[i] * 100) / 1000.0);
+        }
+        builder.append('}');
+    }
+
+    /**
+     * See also <code>HystrixMetricsStreamServlet</code> for the format.
+     */
+    private static String commandJson(HystrixCommandMetrics commandMetrics) {
+        HealthCounts healthCounts = commandMetrics.getHealthCounts();
+        HystrixCommandProperties properties = commandMetrics.getProperties();
+        JsonBuilder json = new JsonBuilder();
+        json.add("type", "HystrixCommand").add("name", commandMetrics.getCommandKey().name()).add("group", commandMetrics.getCommandGroup().name())
+                .add("currentTime", System.currentTimeMillis()).add("isCircuitBreakerOpen", isCircuitBreakerOpen(commandMetrics))
+                .add("errorPercentage", healthCounts.getErrorPercentage()).add("errorCount", healthCounts.getErrorCount())
+                .add("requestCount", healthCounts.getTotalRequests());
+        json.add("rollingCountBadRequests", commandMetrics.getRollingCount(HystrixEventType.BAD_REQUEST))
+                .add("rollingCountCollapsedRequests", commandMetrics.getRollingCount(HystrixEventType.COLLAPSED))
+                .add("rollingCountEmit", commandMetrics.getRollingCount(HystrixEventType.EMIT))
+                .add("rollingCountExceptionsThrown", commandMetrics.getRollingCount(HystrixEventType.EXCEPTION_THROWN))
+                .add("rollingCountFailure", commandMetrics.getRollingCount(HystrixEventType.FAILURE))
+                .add("rollingCountFallbackEmit", commandMetrics.getRollingCount(HystrixEventType.FALLBACK_EMIT))
+                .add("rollingCountFallbackFailure", commandMetrics.getRollingCount(HystrixEventType.FALLBACK_FAILURE))
+                .add("rollingCountFallbackMissing", commandMetrics.getRollingCount(HystrixEventType.FALLBACK_MISSING))
+                .add("rollingCountFallbackRejection", commandMetrics.getRollingCount(HystrixEventType.FALLBACK_REJECTION))
+                .add("rollingCountFallbackSuccess", commandMetrics.getRollingCount(HystrixEventType.FALLBACK_SUCCESS))
+                .add("rollingCountResponsesFromCache", commandMetrics.getRollingCount(HystrixEventType.RESPONSE_FROM_CACHE))
+                .add("rollingCountSemaphoreRejected", commandMetrics.getRollingCount(HystrixEventType.SEMAPHORE_REJECTED))
+                .add("rollingCountShortCircuited", commandMetrics.getRollingCount(HystrixEventType.SHORT_CIRCUITED))
+                .add("rollingCountSuccess", commandMetrics.getRollingCount(HystrixEventType.SUCCESS))
+                .add("rollingCountThreadPoolRejected", commandMetrics.getRollingCount(HystrixEventType.THREAD_POOL_REJECTED))
+                .add("rollingCountTimeout", commandMetrics.getRollingCount(HystrixEventType.TIMEOUT))
+                .add("currentConcurrentExecutionCount", commandMetrics.getCurrentConcurrentExecutionCount())
+                .add("rollingMaxConcurrentExecutionCount", commandMetrics.getRollingMaxConcurrentExecutions());
+        json.add("latencyExecute_mean", commandMetrics.getExecutionTimeMean());
+        JsonBuilder latencyExecute = new JsonBuilder();
+        JsonBuilder latencyTotal = new JsonBuilder();
+        for (double percentile : DASHBOARD_PERCENTILES) {
+            String key = percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile);
+            latencyExecute.add(key, commandMetrics.getExecutionTimePercentile(percentile));
+            latencyTotal.add(key, commandMetrics.getTotalTimePercentile(percentile));
+        }
+        json.addRaw("latencyExecute", latencyExecute.build()).add("latencyTotal_mean", commandMetrics.getTotalTimeMean()).addRaw("latencyTotal",
+                latencyTotal.build());
+        json.add("propertyValue_circuitBreakerRequestVolumeThreshold", properties.circuitBreakerRequestVolumeThreshold().get())
+                .add("propertyValue_circuitBreakerSleepWindowInMilliseconds", properties.circuitBreakerSleepWindowInMilliseconds().get())
+                .add("propertyValue_circuitBreakerErrorThresholdPercentage", properties.circuitBreakerErrorThresholdPercentage().get())
+                .add("propertyValue_circuitBreakerForceOpen", properties.circuitBreakerForceOpen().get())
+                .add("propertyValue_circuitBreakerForceClosed", properties.circuitBreakerForceClosed().get())
+                .add("propertyValue_circuitBreakerEnabled", properties.circuitBreakerEnabled().get())
+                .add("propertyValue_executionIsolationStrategy", properties.executionIsolationStrategy().get().name())
+                .add("propertyValue_executionIsolationThreadTimeoutInMilliseconds", properties.executionTimeoutInMilliseconds().get())
+                .add("propertyValue_executionTimeoutInMilliseconds", properties.executionTimeoutInMilliseconds().get())
+                .add("propertyValue_executionIsolationThreadInterruptOnTimeout", properties.executionIsolationThreadInterruptOnTimeout().get())
+                .add("propertyValue_executionIsolationSemaphoreMaxConcurrentRequests",
+                        properties.executionIsolationSemaphoreMaxConcurrentRequests().get())
+                .add("propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests", properties.fallbackIsolationSemaphoreMaxConcurrentRequests().get())
+                .add("propertyValue_metricsRollingStatisticalWindowInMilliseconds", properties.metricsRollingStatisticalWindowInMilliseconds().get())
+                .add("propertyValue_requestCacheEnabled", properties.requestCacheEnabled().get())
+                .add("propertyValue_requestLogEnabled", properties.requestLogEnabled().get()).add("reportingHosts", 1)
+                .add("threadPool", commandMetrics.getThreadPoolKey().name());
+        return json.build();
+    }
+
+    private static String threadPoolJson(HystrixThreadPoolMetrics threadPoolMetrics) {
+        JsonBuilder json = new JsonBuilder();
+        json.add("type", "HystrixThreadPool").add("name", threadPoolMetrics.getThreadPoolKey().name()).add("currentTime", System.currentTimeMillis())
+                .add("currentActiveCount", threadPoolMetrics.getCurrentActiveCount().intValue())
+                .add("currentCompletedTaskCount", threadPoolMetrics.getCurrentCompletedTaskCount().longValue())
+                .add("currentCorePoolSize", threadPoolMetrics.getCurrentCorePoolSize().intValue())
+                .add("currentLargestPoolSize", threadPoolMetrics.getCurrentLargestPoolSize().intValue())
+                .add("currentMaximumPoolSize", threadPoolMetrics.getCurrentMaximumPoolSize().intValue())
+                .add("currentPoolSize", threadPoolMetrics.getCurrentPoolSize().intValue())
+                .add("currentQueueSize", threadPoolMetrics.getCurrentQueueSize().intValue())
+                .add("currentTaskCount", threadPoolMetrics.getCurrentTaskCount().longValue())
+                .add("rollingCountThreadsExecuted", threadPoolMetrics.getRollingCountThreadsExecuted())
+                .add("rollingMaxActiveThreads", threadPoolMetrics.getRollingMaxActiveThreads())
+                .add("rollingCountCommandRejections", threadPoolMetrics.getRollingCountThreadsRejected())
+                .add("propertyValue_queueSizeRejectionThreshold", threadPoolMetrics.getProperties().queueSizeRejectionThreshold().get())
+                .add("propertyValue_metricsRollingStatisticalWindowInMilliseconds",
+                        threadPoolMetrics.getProperties().metricsRollingStatisticalWindowInMilliseconds().get())
+                .add("reportingHosts", 1);
+        return json.build();
+    }
+
+    /**
+     * A minimal JSON object builder - the names and string values are never escaped.
+     */
+    private static class JsonBuilder {
+
+        private final StringBuilder builder = new StringBuilder("{");
+
+        JsonBuilder add(String name, String value) {
+            return addRaw(name, "\"" + value + "\"");
+        }
+
+        JsonBuilder add(String name, Number value) {
+            return addRaw(name, String.valueOf(value));
+        }
+
+        JsonBuilder add(String name, boolean value) {
+            return addRaw(name, String.valueOf(value));
+        }
+
+        JsonBuilder addRaw(String name, String value) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append('"').append(name).append("\":").append(value);
+            return this;
+        }
+
+        String build() {
+            return builder.append('}').toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.http.pool.PoolStats;
+import org.wildfly.swarm.health.Health;
+import org.wildfly.swarm.health.HealthStatus;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+
+/**
+ * Exposes the greeting service statistics through the monitor fraction, i.e. the statuses are also aggregated under <code>/health</code>.
+ */
+@Path("/monitor")
+public class MonitorEndpoint {
+
+    @Inject
+    NameCache nameCache;
+
+    @Inject
+    ClientConfig clientConfig;
+
+    @Inject
+    AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    @Inject
+    NameHedging hedging;
+
+    @Inject
+    CallerBulkheads bulkheads;
+
+    @Inject
+    CircuitBreakerGossip gossip;
+
+    @GET
+    @Path("/collapser")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus collapser() {
+        return HealthStatus.named("name-collapser").up().withAttribute("enabled", GreetingProperties.COLLAPSE.get())
+                .withAttribute("requests", NameCollapser.getRequestCount()).withAttribute("batches", NameCollapser.getBatchCount())
+                .withAttribute("batchingRatio", NameCollapser.getBatchingRatio());
+    }
+
+    @GET
+    @Path("/name-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus nameCache() {
+        return HealthStatus.named("name-cache").up().withAttribute("enabled", GreetingProperties.CACHE.get()).withAttribute("size", nameCache.size())
+                .withAttribute("hits", nameCache.getHitCount()).withAttribute("misses", nameCache.getMissCount())
+                .withAttribute("stale", nameCache.getStaleCount());
+    }
+
+    @GET
+    @Path("/client-pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus clientPool() {
+        PoolStats stats = clientConfig.getPoolStats();
+        HealthStatus status = HealthStatus.named("client-pool").up();
+        if (stats != null) {
+            status.withAttribute("leased", stats.getLeased()).withAttribute("pending", stats.getPending())
+                    .withAttribute("available", stats.getAvailable()).withAttribute("max", stats.getMax());
+        }
+        return status;
+    }
+
+    @GET
+    @Path("/concurrency-limit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus concurrencyLimit() {
+        ExecutionIsolationStrategy isolation = concurrencyLimit.getIsolation();
+        // The configured isolation strategy is only used if no command was created yet
+        return HealthStatus.named("concurrency-limit").up()
+                .withAttribute("isolation", isolation != null ? isolation.name() : GreetingProperties.NAME_ISOLATION.get())
+                .withAttribute("active", concurrencyLimit.isActive()).withAttribute("limit", concurrencyLimit.getLimit());
+    }
+
+    @GET
+    @Path("/hedging")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus hedging() {
+        return HealthStatus.named("hedging").up().withAttribute("enabled", GreetingProperties.HEDGE.get())
+                .withAttribute("delay", hedging.getDelay()).withAttribute("requests", hedging.getRequestCount())
+                .withAttribute("hedges", hedging.getHedgeCount()).withAttribute("wins", hedging.getWinCount())
+                .withAttribute("rejected", hedging.getRejectedCount());
+    }
+
+    @GET
+    @Path("/retries")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus retries() {
+        return HealthStatus.named("retries").up().withAttribute("enabled", GreetingProperties.RETRY.get())
+                .withAttribute("retries", NameRetry.getRetryCount()).withAttribute("rejected", NameRetry.getRejectedCount());
+    }
+
+    @GET
+    @Path("/bulkheads")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus bulkheads() {
+        HealthStatus status = HealthStatus.named("bulkheads").up().withAttribute("enabled", GreetingProperties.BULKHEAD.get())
+                .withAttribute("active", bulkheads.isActive()).withAttribute("saturation", bulkheads.getSaturation());
+        for (String callerClass : bulkheads.getClasses()) {
+            status.withAttribute(callerClass + ".shed", bulkheads.getShedCount(callerClass));
+        }
+        return status;
+    }
+
+    @GET
+    @Path("/gossip")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus gossip() {
+        HealthStatus status = HealthStatus.named("gossip").up().withAttribute("enabled", GreetingProperties.GOSSIP.get())
+                .withAttribute("active", gossip.isActive()).withAttribute("peers", gossip.getPeerCount()).withAttribute("sent", gossip.getSentCount())
+                .withAttribute("received", gossip.getReceivedCount()).withAttribute("trips", gossip.getTripCount());
+        for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+            String key = endpoint.getKey().name();
+            long[] window = gossip.getWindow(key);
+            status.withAttribute(key, "requests: " + window[0] + ", errors: " + window[1] + (gossip.getForced().contains(key) ? ", forced open" : ""));
+        }
+        return status;
+    }
+
+    @GET
+    @Path("/name-endpoints")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Health
+    public HealthStatus nameEndpoints() {
+        HealthStatus status = HealthStatus.named("name-endpoints").up();
+        for (NameServiceEndpoint endpoint : balancer.getEndpoints()) {
+            status.withAttribute(endpoint.toString(), (endpoint.isOpen() ? "open" : "closed") + ", outstanding: " + endpoint.getOutstanding());
+        }
+        return status;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the messages to a UDP multicast group, see also {@link GreetingProperties#GOSSIP_GROUP} and {@link GreetingProperties#GOSSIP_PORT}. Note
+ * that the multicast must be supported by the network, e.g. it's not supported by all the OpenShift SDN plugins. The messages sent by this replica
+ * are looped back and must be filtered out by the receiver. The messages are not authenticated, see also {@link CircuitBreakerGossip}.
+ */
+final class MulticastGossipTransport implements GossipTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(MulticastGossipTransport.class.getName());
+
+    // Large enough for a message with dozens of endpoints
+    private static final int MAX_MESSAGE_SIZE = 8192;
+
+    private final InetAddress group;
+
+    private final int port;
+
+    private final ThreadFactory threadFactory;
+
+    private volatile MulticastSocket socket;
+
+    MulticastGossipTransport(InetAddress group, int port, ThreadFactory threadFactory) {
+        this.group = group;
+        this.port = port;
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        MulticastSocket socket = new MulticastSocket(port);
+        socket.joinGroup(group);
+        this.socket = socket;
+        threadFactory.newThread(() -> receive(socket, receiver)).start();
+        LOGGER.info("Circuit breaker gossip joined " + group.getHostAddress() + ":" + port);
+    }
+
+    @Override
+    public void send(byte[] message) throws IOException {
+        MulticastSocket socket = this.socket;
+        if (socket != null) {
+            socket.send(new DatagramPacket(message, message.length, group, port));
+        }
+    }
+
+    @Override
+    public void close() {
+        MulticastSocket socket = this.socket;
+        if (socket != null) {
+            this.socket = null;
+            try {
+                socket.leaveGroup(group);
+            } catch (IOException ignored) {
+            }
+            // Unblocks the receiving thread
+            socket.close();
+        }
+    }
+
+    private void receive(MulticastSocket socket, Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOf(buffer, packet.getLength()));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    LOGGER.log(Level.WARNING, "Unable to receive a circuit breaker gossip message", e);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Invalid circuit breaker gossip message ignored", e);
+            }
+        }
+    }
+
+}
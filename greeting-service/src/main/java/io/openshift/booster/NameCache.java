@@ -0,0 +1,159 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * A bounded stale-while-revalidate cache for name service results. A fresh value is returned right away. A stale value is returned right away as well
+ * but it is also refreshed in the background. A stale value is never discarded unless the cache is full, i.e. it serves as the last known good value
+ * when the name service is not available.
+ *
+ * @see GreetingProperties#CACHE_TTL
+ * @see GreetingProperties#CACHE_MAX_SIZE
+ */
+@ApplicationScoped
+public class NameCache {
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder stale = new LongAdder();
+
+    /**
+     *
+     * @param key
+     * @param loader returns the value or <code>null</code> if the value cannot be obtained
+     * @return the cached value, the loaded value or <code>null</code> if there is no cached value and the loader did not provide one
+     */
+    String get(String key, Supplier<String> loader) {
+        String value = getIfPresent(key, loader);
+        if (value != null) {
+            return value;
+        }
+        value = loader.get();
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     *
+     * @param key
+     * @param loader used to refresh a stale value in the background
+     * @return the cached value or <code>null</code> if there is no value for the given key
+     */
+    String getIfPresent(String key, Supplier<String> loader) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt <= GreetingProperties.CACHE_TTL.get()) {
+            hits.increment();
+        } else {
+            stale.increment();
+            refresh(key, entry, loader);
+        }
+        return entry.value;
+    }
+
+    void put(String key, String value) {
+        if (!entries.containsKey(key) && entries.size() >= GreetingProperties.CACHE_MAX_SIZE.get()) {
+            evictOldest();
+        }
+        entries.put(key, new Entry(value));
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getStaleCount() {
+        return stale.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void refresh(String key, Entry entry, Supplier<String> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            // Refresh already in progress
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    String value = loader.get();
+                    if (value != null) {
+                        put(key, value);
+                    }
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The stale value is served and the next request retries the refresh
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void evictOldest() {
+        entries.entrySet().stream().min((e1, e2) -> Long.compare(e1.getValue().loadedAt, e2.getValue().loadedAt))
+                .ifPresent(e -> entries.remove(e.getKey(), e.getValue()));
+    }
+
+    private static class Entry {
+
+        private final String value;
+
+        private final long loadedAt;
+
+        private final AtomicBoolean refreshing;
+
+        Entry(String value) {
+            this.value = value;
+            this.loadedAt = System.currentTimeMillis();
+            this.refreshing = new AtomicBoolean(false);
+        }
+
+    }
+
+}
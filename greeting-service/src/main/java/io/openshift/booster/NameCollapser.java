@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.client.Client;
+
+import com.netflix.hystrix.HystrixCollapser;
+import com.netflix.hystrix.HystrixCollapserKey;
+import com.netflix.hystrix.HystrixCommand;
+
+/**
+ * Collapses concurrent name requests so that a single {@link NamesCommand} (i.e. a single name service invocation) serves all the requests
+ * collected within the batch window.
+ * <p>
+ * The batch window and the max batch size are configured through the standard Hystrix properties, i.e.
+ * <code>hystrix.collapser.NameCollapser.timerDelayInMilliseconds</code> and <code>hystrix.collapser.NameCollapser.maxRequestsInBatch</code>.
+ */
+public class NameCollapser extends HystrixCollapser<List<String>, String, Void> {
+
+    static final HystrixCollapserKey KEY = HystrixCollapserKey.Factory.asKey(NameCollapser.class.getSimpleName());
+
+    private static final LongAdder REQUESTS = new LongAdder();
+
+    private static final LongAdder BATCHES = new LongAdder();
+
+    private final Client client;
+
+    private final NameServiceBalancer balancer;
+
+    NameCollapser(Client client, NameServiceBalancer balancer) {
+        // Collapse requests across all HTTP requests, not only within a single one
+        super(Setter.withCollapserKey(KEY).andScope(Scope.GLOBAL));
+        this.client = client;
+        this.balancer = balancer;
+    }
+
+    @Override
+    public Void getRequestArgument() {
+        // All the requests are equal
+        return null;
+    }
+
+    @Override
+    protected HystrixCommand<List<String>> createCommand(Collection<CollapsedRequest<String, Void>> requests) {
+        REQUESTS.add(requests.size());
+        BATCHES.increment();
+        // The whole batch is sent to a single endpoint
+        return new NamesCommand(client, balancer.choose(), requests.size());
+    }
+
+    @Override
+    protected void mapResponseToRequests(List<String> names, Collection<CollapsedRequest<String, Void>> requests) {
+        Iterator<String> iterator = names.iterator();
+        for (CollapsedRequest<String, Void> request : requests) {
+            request.setResponse(iterator.hasNext() ? iterator.next() : NameCommand.FALLBACK);
+        }
+    }
+
+    static long getRequestCount() {
+        return REQUESTS.sum();
+    }
+
+    static long getBatchCount() {
+        return BATCHES.sum();
+    }
+
+    /**
+     *
+     * @return the average number of requests served by a single batch
+     */
+    static double getBatchingRatio() {
+        long batches = BATCHES.sum();
+        return batches > 0 ? (double) REQUESTS.sum() / batches : 0.0;
+    }
+
+}
@@ -19,7 +19,9 @@ package io.openshift.booster;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
+import javax.ws.rs.ServerErrorException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -27,6 +29,8 @@ import javax.ws.rs.core.Response;
 import com.netflix.hystrix.HystrixCommand;
 import com.netflix.hystrix.HystrixCommandGroupKey;
 import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixThreadPoolKey;
 
 /**
  * Wraps the name service invocation.
@@ -39,41 +43,85 @@ public class NameCommand extends HystrixCommand<String> {
 
     static final HystrixCommandGroupKey GROUP_KEY = HystrixCommandGroupKey.Factory.asKey(NameCommand.class.getPackage().getName());
 
+    // Set the thread pool key explicitly so that the thread pool can be configured, e.g. hystrix.threadpool.NameCommand.coreSize
+    static final HystrixThreadPoolKey THREAD_POOL_KEY = HystrixThreadPoolKey.Factory.asKey(NameCommand.class.getSimpleName());
+
+    static final String FALLBACK = "Fallback";
+
     /**
-     * Hardcoded name service URI - in real apps this should be configurable
+     * The name service URI may be overridden with the <code>greeting.name.uri</code> system property
      */
-    private static final URI NAME_SERVICE_URI = initNameServiceUri();
+    static final URI NAME_SERVICE_URI = initNameServiceUri();
 
     private final Client client;
 
-    NameCommand(Client client) {
+    private final NameServiceEndpoint endpoint;
+
+    // The timeout timer starts later, i.e. the deadline is conservative
+    private final long created = System.nanoTime();
+
+    NameCommand(Client client, NameServiceEndpoint endpoint) {
+        this(client, endpoint, THREAD_POOL_KEY);
+    }
+
+    NameCommand(Client client, NameServiceEndpoint endpoint, HystrixThreadPoolKey threadPoolKey) {
         // Set the command key explicitly so that we're able to obtain the circuit breaker status
-        super(Setter.withGroupKey(GROUP_KEY).andCommandKey(KEY));
+        // All the endpoints share the thread pool, see also CallerBulkheads
+        super(Setter.withGroupKey(GROUP_KEY).andCommandKey(endpoint.getKey()).andThreadPoolKey(threadPoolKey)
+                .andCommandPropertiesDefaults(endpoint.getCommandDefaults()));
         this.client = client;
+        this.endpoint = endpoint;
     }
 
     @Override
     protected String run() throws Exception {
-        Response response = client.target(NAME_SERVICE_URI).request(MediaType.TEXT_PLAIN_TYPE).get();
-        try {
-            if (response.getStatus() != 200) {
-                throw new RuntimeException("Cannot get name from " + NAME_SERVICE_URI);
-            }
-            String value = response.readEntity(String.class);
-            return value;
-        } finally {
-            response.close();
+        if (isRetryEnabled()) {
+            long timeout = TimeUnit.MILLISECONDS.toNanos(getProperties().executionTimeoutInMilliseconds().get());
+            return NameRetry.call(this::invoke, created + timeout);
         }
+        return invoke();
     }
 
     @Override
     protected String getFallback() {
-        return "Fallback";
+        return FALLBACK;
+    }
+
+    /**
+     * In the semaphore isolation mode the command is executed on the caller thread which is neither interrupted nor released when the command
+     * times out. Therefore, the blocking retries are only used in the thread isolation mode.
+     *
+     * @return <code>true</code> if a failed invocation may be retried
+     */
+    boolean isRetryEnabled() {
+        return GreetingProperties.RETRY.get() && ExecutionIsolationStrategy.THREAD == getProperties().executionIsolationStrategy().get();
+    }
+
+    private String invoke() {
+        endpoint.acquire();
+        try {
+            // The plain text name is already the most compact representation
+            Response response = client.target(endpoint.getUri()).request(MediaType.TEXT_PLAIN_TYPE).get();
+            try {
+                if (response.getStatus() >= 500) {
+                    // Server errors may be retried
+                    throw new ServerErrorException("Cannot get name from " + endpoint.getUri(), response.getStatus());
+                } else if (response.getStatus() != 200) {
+                    throw new RuntimeException("Cannot get name from " + endpoint.getUri());
+                }
+                String value = response.readEntity(String.class);
+                return value;
+            } finally {
+                response.close();
+            }
+        } finally {
+            endpoint.release();
+        }
     }
 
     private static URI initNameServiceUri() {
         try {
-            return new URI("http://wfswarm-circuit-breaker-name:8080/api/name");
+            return new URI(System.getProperty("greeting.name.uri", "http://wfswarm-circuit-breaker-name:8080/api/name"));
         } catch (URISyntaxException e) {
             throw new IllegalStateException();
         }
@@ -0,0 +1,146 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.HdrHistogram.Histogram;
+
+import rx.Observable;
+
+/**
+ * Sends a second (hedge) name service request if the first one does not respond within the configured percentile of the recent name service
+ * latency. The first response wins and the other request is cancelled, i.e. unsubscribed. Only the latency of the primary requests should be
+ * recorded, otherwise the faster hedge requests would shorten the delay, see also {@link NameService}.
+ * <p>
+ * The number of hedge requests is limited by a token bucket - every request deposits {@link GreetingProperties#HEDGE_BUDGET} tokens and a hedge
+ * request consumes one token. E.g. the budget of <code>0.05</code> allows at most 5% extra load on the name service.
+ *
+ * @see GreetingProperties#HEDGE
+ */
+@ApplicationScoped
+public class NameHedging {
+
+    // Use the configured min delay until there is enough data
+    private static final long MIN_SAMPLES = 100;
+
+    @Inject
+    GreetingMetrics metrics;
+
+    // At most 10 hedge requests may be sent in a burst
+    private final TokenBucket budget = new TokenBucket(10);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder wins = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Histogram lastRolling;
+
+    private volatile long lastDelay;
+
+    /**
+     *
+     * @param primary supplies the primary name service request, the subscription must not block
+     * @param attempt supplies the hedge request, the subscription must not block
+     * @return an observable emitting the name received first
+     */
+    Observable<String> hedge(Supplier<Observable<String>> primary, Supplier<Observable<String>> attempt) {
+        requests.increment();
+        budget.deposit(GreetingProperties.HEDGE_BUDGET.get());
+        Observable<Result> first = primary.get().map(name -> new Result(name, false));
+        Observable<Result> hedge = Observable.defer(() -> {
+            if (!budget.tryAcquire()) {
+                rejected.increment();
+                return Observable.<Result> never();
+            }
+            hedges.increment();
+            return attempt.get().map(name -> new Result(name, true));
+        }).delaySubscription(getDelay(), TimeUnit.MILLISECONDS);
+        return Observable.amb(first, hedge).map(result -> {
+            if (result.hedge) {
+                wins.increment();
+            }
+            return result.name;
+        });
+    }
+
+    /**
+     *
+     * @return the current hedge delay in milliseconds
+     */
+    long getDelay() {
+        Histogram rolling = metrics.getNameLatency().getRolling();
+        if (rolling != lastRolling) {
+            // The rolling histogram is replaced every second
+            long delay = GreetingProperties.HEDGE_MIN_DELAY.get();
+            if (rolling.getTotalCount() >= MIN_SAMPLES) {
+                delay = Math.max(delay, TimeUnit.MICROSECONDS.toMillis(rolling.getValueAtPercentile(GreetingProperties.HEDGE_PERCENTILE.get())));
+            }
+            lastDelay = delay;
+            lastRolling = rolling;
+        }
+        return lastDelay;
+    }
+
+    long getRequestCount() {
+        return requests.sum();
+    }
+
+    long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     *
+     * @return the number of hedge requests that responded first
+     */
+    long getWinCount() {
+        return wins.sum();
+    }
+
+    /**
+     *
+     * @return the number of hedge requests not sent because the budget was exhausted
+     */
+    long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private static final class Result {
+
+        private final String name;
+
+        private final boolean hedge;
+
+        Result(String name, boolean hedge) {
+            this.name = name;
+            this.hedge = hedge;
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.netflix.hystrix.HystrixObservableCommand;
+
+import rx.Observable;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Wraps the asynchronous name service invocation. The caller thread is not blocked while waiting for the response. However, the RESTEasy client
+ * performs the blocking call on its async executor, i.e. an executor thread is held per invocation in progress. The executor is bounded and if it's
+ * saturated the invocation is rejected and the fallback is used, see also {@link ClientConfig}.
+ *
+ * @see NameCommand
+ */
+public class NameObservableCommand extends HystrixObservableCommand<String> {
+
+    private final Client client;
+
+    private final NameServiceEndpoint endpoint;
+
+    NameObservableCommand(Client client, NameServiceEndpoint endpoint) {
+        // Share the command key with NameCommand so that both execution modes are guarded by the same circuit breaker
+        // Therefore the isolation strategy is shared as well - in the thread isolation mode the subscription happens on a Hystrix thread
+        super(Setter.withGroupKey(NameCommand.GROUP_KEY).andCommandKey(endpoint.getKey())
+                .andCommandPropertiesDefaults(endpoint.getCommandDefaults()));
+        this.client = client;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    protected Observable<String> construct() {
+        return Observable.create(subscriber -> {
+            endpoint.acquire();
+            subscriber.add(Subscriptions.create(endpoint::release));
+            Future<Response> future;
+            try {
+                future = client.target(endpoint.getUri()).request(MediaType.TEXT_PLAIN_TYPE).async().get(new InvocationCallback<Response>() {
+
+                    @Override
+                    public void completed(Response response) {
+                        try {
+                            if (response.getStatus() != 200) {
+                                subscriber.onError(new RuntimeException("Cannot get name from " + endpoint.getUri()));
+                                return;
+                            }
+                            subscriber.onNext(response.readEntity(String.class));
+                            subscriber.onCompleted();
+                        } catch (RuntimeException e) {
+                            subscriber.onError(e);
+                        } finally {
+                            response.close();
+                        }
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable) {
+                        subscriber.onError(throwable);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The client async executor is saturated, see also ClientConfig - the fallback is used
+                subscriber.onError(e);
+                return;
+            }
+            // Cancel the pending request if the command times out
+            subscriber.add(Subscriptions.from(future));
+        });
+    }
+
+    @Override
+    protected Observable<String> resumeWithFallback() {
+        return Observable.just(NameCommand.FALLBACK);
+    }
+
+}
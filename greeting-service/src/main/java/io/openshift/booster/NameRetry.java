@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServerErrorException;
+
+/**
+ * Retries a failed name service invocation with exponential backoff and full jitter, i.e. the n-th retry is delayed by a random value between zero
+ * and <code>min(maxBackoff, initialBackoff * 2^n)</code>. Only server errors and I/O failures are retried.
+ * <p>
+ * The retries are limited by a token bucket shared by all the commands - every invocation deposits {@link GreetingProperties#RETRY_BUDGET} tokens
+ * and a retry consumes one token, so that retries cannot amplify an outage. A retry is also only scheduled if the backoff plus the duration of the
+ * failed attempt fits before the command deadline, i.e. the retries are expected to stay within the command timeout.
+ * <p>
+ * The backoff blocks the executing thread and so the retries are only used in the thread isolation mode, see also
+ * {@link NameCommand#isRetryEnabled()}.
+ *
+ * @see NameCommand
+ */
+final class NameRetry {
+
+    // At most 10 retries may be sent in a burst
+    private static final TokenBucket BUDGET = new TokenBucket(10);
+
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private static final LongAdder REJECTED = new LongAdder();
+
+    private NameRetry() {
+    }
+
+    /**
+     *
+     * @param invocation
+     * @param deadline the deadline in nanoseconds, as returned by {@link System#nanoTime()}
+     * @return the result of the first successful invocation
+     * @throws Exception the last failure if no retry is permitted
+     */
+    static <T> T call(Callable<T> invocation, long deadline) throws Exception {
+        BUDGET.deposit(GreetingProperties.RETRY_BUDGET.get());
+        int attempt = 0;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                return invocation.call();
+            } catch (ProcessingException | ServerErrorException e) {
+                attempt++;
+                if (attempt >= GreetingProperties.RETRY_MAX_ATTEMPTS.get()) {
+                    throw e;
+                }
+                long now = System.nanoTime();
+                long backoff = getBackoff(attempt);
+                // Expect the next attempt to take as long as the failed one
+                if (now + backoff + (now - start) >= deadline) {
+                    // Not enough time left
+                    throw e;
+                }
+                if (!BUDGET.tryAcquire()) {
+                    REJECTED.increment();
+                    throw e;
+                }
+                RETRIES.increment();
+                // In the thread isolation mode Hystrix interrupts the thread if the command times out
+                // See also execution.isolation.thread.interruptOnTimeout
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            }
+        }
+    }
+
+    static long getRetryCount() {
+        return RETRIES.sum();
+    }
+
+    /**
+     *
+     * @return the number of retries not sent because the budget was exhausted
+     */
+    static long getRejectedCount() {
+        return REJECTED.sum();
+    }
+
+    /**
+     *
+     * @param attempt
+     * @return the backoff in nanoseconds
+     */
+    private static long getBackoff(int attempt) {
+        long max = GreetingProperties.RETRY_MAX_BACKOFF.get();
+        long exponential = GreetingProperties.RETRY_INITIAL_BACKOFF.get() << Math.min(attempt - 1, 30);
+        long bound = Math.max(1, Math.min(max, exponential));
+        return TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.client.Client;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+
+import rx.Observable;
+import rx.functions.Action0;
+
+/**
+ * Obtains the name from the name service.
+ */
+@ApplicationScoped
+public class NameService {
+
+    private static final String CACHE_KEY = NameCommand.NAME_SERVICE_URI.toString();
+
+    @Inject
+    Client client;
+
+    @Inject
+    NameServiceBalancer balancer;
+
+    @Inject
+    NameHedging hedging;
+
+    @Inject
+    NameCache nameCache;
+
+    @Inject
+    AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @Inject
+    GreetingMetrics metrics;
+
+    /**
+     *
+     * @param threadPoolKey the thread pool used if the name service is invoked directly, see also {@link CallerBulkheads}
+     * @return the name, blocks until the name service responds or the command times out
+     */
+    String getName(HystrixThreadPoolKey threadPoolKey) {
+        if (GreetingProperties.CACHE.get()) {
+            String name = nameCache.get(CACHE_KEY, () -> loadName(threadPoolKey));
+            return name != null ? name : NameCommand.FALLBACK;
+        }
+        if (GreetingProperties.COLLAPSE.get()) {
+            return new NameCollapser(client, balancer).execute();
+        }
+        if (GreetingProperties.HEDGE.get()) {
+            return hedge(threadPoolKey).toBlocking().single();
+        }
+        return execute(new NameCommand(client, balancer.choose(), threadPoolKey));
+    }
+
+    /**
+     *
+     * @return an observable emitting the name, the caller thread is not blocked while waiting for the name service
+     */
+    Observable<String> observeName() {
+        if (GreetingProperties.CACHE.get()) {
+            // The bulkheads do not apply in the async mode, i.e. the default pool is used
+            String name = nameCache.getIfPresent(CACHE_KEY, () -> loadName(NameCommand.THREAD_POOL_KEY));
+            return name != null ? Observable.just(name) : observeAndCache();
+        }
+        if (GreetingProperties.COLLAPSE.get()) {
+            return new NameCollapser(client, balancer).toObservable();
+        }
+        if (GreetingProperties.HEDGE.get()) {
+            // The bulkheads do not apply in the async mode, i.e. the default pool is used
+            return hedge(NameCommand.THREAD_POOL_KEY);
+        }
+        NameObservableCommand command = new NameObservableCommand(client, balancer.choose());
+        long start = System.nanoTime();
+        return command.toObservable().doOnTerminate(() -> onCompleted(command, start));
+    }
+
+    /**
+     *
+     * @param threadPoolKey
+     * @return the name or <code>null</code> if the name service invocation did not succeed
+     */
+    private String loadName(HystrixThreadPoolKey threadPoolKey) {
+        NameCommand command = new NameCommand(client, balancer.choose(), threadPoolKey);
+        String name = execute(command);
+        return command.isSuccessfulExecution() ? name : null;
+    }
+
+    private String execute(NameCommand command) {
+        long start = System.nanoTime();
+        String name = command.execute();
+        metrics.recordName(System.nanoTime() - start);
+        concurrencyLimit.onCompleted(command);
+        return name;
+    }
+
+    private void onCompleted(NameObservableCommand command, long start) {
+        metrics.recordName(System.nanoTime() - start);
+        concurrencyLimit.onCompleted(command);
+    }
+
+    private Observable<String> hedge(HystrixThreadPoolKey threadPoolKey) {
+        // The hedge delay is derived from the name latency and so only the primary attempt is recorded - the faster of two attempts or a cancelled
+        // hedge attempt would bias the delay downwards
+        return Observable.defer(() -> hedging.hedge(() -> recordLatency(attempt(threadPoolKey)), () -> attempt(threadPoolKey)));
+    }
+
+    private Observable<String> attempt(HystrixThreadPoolKey threadPoolKey) {
+        if (GreetingProperties.ASYNC.get() || ExecutionIsolationStrategy.SEMAPHORE.name().equals(GreetingProperties.NAME_ISOLATION.get())) {
+            // NameCommand would block the subscribing thread in the semaphore isolation mode
+            NameObservableCommand command = new NameObservableCommand(client, balancer.choose());
+            return command.toObservable().doOnTerminate(() -> concurrencyLimit.onCompleted(command));
+        }
+        NameCommand command = new NameCommand(client, balancer.choose(), threadPoolKey);
+        return command.toObservable().doOnTerminate(() -> concurrencyLimit.onCompleted(command));
+    }
+
+    private Observable<String> recordLatency(Observable<String> attempt) {
+        return Observable.defer(() -> {
+            // If the hedge attempt wins the primary attempt is recorded when cancelled, i.e. with a lower bound of its latency which still exceeds
+            // the hedge delay
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Action0 record = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    metrics.recordName(System.nanoTime() - start);
+                }
+            };
+            return attempt.doOnTerminate(record).doOnUnsubscribe(record);
+        });
+    }
+
+    private Observable<String> observeAndCache() {
+        NameObservableCommand command = new NameObservableCommand(client, balancer.choose());
+        AtomicReference<String> name = new AtomicReference<>();
+        long start = System.nanoTime();
+        return command.toObservable().doOnNext(name::set).doOnTerminate(() -> onCompleted(command, start))
+                .doOnCompleted(() -> {
+                    if (command.isSuccessfulExecution()) {
+                        nameCache.put(CACHE_KEY, name.get());
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.netflix.hystrix.HystrixCommandKey;
+
+/**
+ * Distributes the name service invocations among the endpoints configured via {@link GreetingProperties#NAME_ENDPOINTS}. The power-of-two-choices
+ * algorithm is used, i.e. two endpoints are picked at random and the one with less outstanding invocations wins. Endpoints with an open circuit are
+ * ejected until the circuit breaker sleep window elapses, then a single test request is sent.
+ * <p>
+ * If no endpoints are configured {@link NameCommand#NAME_SERVICE_URI} is used.
+ */
+@ApplicationScoped
+public class NameServiceBalancer {
+
+    private static final Logger LOGGER = Logger.getLogger(NameServiceBalancer.class.getName());
+
+    private final Runnable callback = this::update;
+
+    private volatile List<NameServiceEndpoint> endpoints = Collections.singletonList(NameServiceEndpoint.DEFAULT);
+
+    @PostConstruct
+    void init() {
+        update();
+        GreetingProperties.NAME_ENDPOINTS.addCallback(callback);
+    }
+
+    @PreDestroy
+    void destroy() {
+        GreetingProperties.NAME_ENDPOINTS.removeAllCallbacks();
+    }
+
+    List<NameServiceEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     *
+     * @param key
+     * @return <code>true</code> if the key identifies an endpoint
+     */
+    boolean isEndpointKey(HystrixCommandKey key) {
+        for (NameServiceEndpoint endpoint : endpoints) {
+            if (endpoint.getKey().name().equals(key.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    NameServiceEndpoint choose() {
+        List<NameServiceEndpoint> endpoints = this.endpoints;
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        NameServiceEndpoint first = endpoints.get(i);
+        NameServiceEndpoint second = endpoints.get(j);
+        if (first.isEjected()) {
+            if (first.tryProbe()) {
+                return first;
+            }
+            first = null;
+        }
+        if (second.isEjected()) {
+            if (second.tryProbe()) {
+                return second;
+            }
+            second = null;
+        }
+        if (first != null && second != null) {
+            return first.getOutstanding() <= second.getOutstanding() ? first : second;
+        } else if (first != null) {
+            return first;
+        } else if (second != null) {
+            return second;
+        }
+        // Both endpoints are ejected - find the least loaded available endpoint
+        NameServiceEndpoint best = null;
+        for (NameServiceEndpoint endpoint : endpoints) {
+            if (!endpoint.isOpen() && (best == null || endpoint.getOutstanding() < best.getOutstanding())) {
+                best = endpoint;
+            }
+        }
+        // If all the circuits are open the command is short-circuited and the fallback is used
+        return best != null ? best : endpoints.get(i);
+    }
+
+    private synchronized void update() {
+        String value = GreetingProperties.NAME_ENDPOINTS.get();
+        List<URI> uris = new ArrayList<>();
+        if (value != null) {
+            for (String part : value.split(",")) {
+                if (!part.trim().isEmpty()) {
+                    try {
+                        uris.add(new URI(part.trim()));
+                    } catch (Exception e) {
+                        LOGGER.warning("Invalid name service endpoint ignored: " + part);
+                    }
+                }
+            }
+        }
+        List<NameServiceEndpoint> updated;
+        if (uris.isEmpty()) {
+            updated = Collections.singletonList(NameServiceEndpoint.DEFAULT);
+        } else if (uris.size() == 1) {
+            URI uri = uris.get(0);
+            updated = Collections.singletonList(uri.equals(NameServiceEndpoint.DEFAULT.getUri()) ? NameServiceEndpoint.DEFAULT
+                    : new NameServiceEndpoint(uri, NameCommand.KEY));
+        } else {
+            // Reuse the existing endpoints so that the outstanding invocations are not lost
+            Map<URI, NameServiceEndpoint> existing = new HashMap<>();
+            for (NameServiceEndpoint endpoint : endpoints) {
+                existing.put(endpoint.getUri(), endpoint);
+            }
+            updated = new ArrayList<>();
+            Set<String> keys = new HashSet<>();
+            for (int i = 0; i < uris.size(); i++) {
+                URI uri = uris.get(i);
+                NameServiceEndpoint endpoint = existing.get(uri);
+                if (endpoint == null || NameCommand.KEY.name().equals(endpoint.getKey().name())) {
+                    endpoint = new NameServiceEndpoint(uri, commandKey(uri, i, keys));
+                }
+                keys.add(endpoint.getKey().name());
+                updated.add(endpoint);
+            }
+            updated = Collections.unmodifiableList(updated);
+        }
+        endpoints = updated;
+        LOGGER.info("Name service endpoints: " + updated);
+    }
+
+    /**
+     * The key is derived from the scheme, authority and path, e.g. <code>NameCommand-http-name-1-8080-api-name</code>. The key is also part of the
+     * property names and so any other character than a letter or a digit is replaced with a dash. If the key is already used the index of the
+     * endpoint is appended.
+     *
+     * @param uri
+     * @param index the index in the configured list
+     * @param used the keys already used
+     * @return the command key
+     */
+    static HystrixCommandKey commandKey(URI uri, int index, Set<String> used) {
+        String id = (uri.getScheme() + "-" + uri.getRawAuthority() + uri.getRawPath()).replaceAll("[^A-Za-z0-9]+", "-");
+        if (id.endsWith("-")) {
+            id = id.substring(0, id.length() - 1);
+        }
+        String key = NameCommand.KEY.name() + "-" + id;
+        return HystrixCommandKey.Factory.asKey(used.contains(key) ? key + "-" + index : key);
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+
+/**
+ * A single name service instance. Each endpoint is guarded by its own circuit breaker, i.e. it has its own command key. The only exception is a
+ * single configured endpoint which uses {@link NameCommand#KEY} so that the existing <code>hystrix.command.NameCommand.*</code> configuration
+ * applies.
+ *
+ * @see NameServiceBalancer
+ */
+final class NameServiceEndpoint {
+
+    static final NameServiceEndpoint DEFAULT = new NameServiceEndpoint(NameCommand.NAME_SERVICE_URI, NameCommand.KEY);
+
+    private final URI uri;
+
+    private final URI namesUri;
+
+    private final HystrixCommandKey key;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final AtomicLong nextProbe = new AtomicLong();
+
+    private volatile HystrixCircuitBreaker circuitBreaker;
+
+    private volatile boolean ejected;
+
+    NameServiceEndpoint(URI uri, HystrixCommandKey key) {
+        this.uri = uri;
+        this.namesUri = uri.resolve("names");
+        this.key = key;
+    }
+
+    URI getUri() {
+        return uri;
+    }
+
+    URI getNamesUri() {
+        return namesUri;
+    }
+
+    HystrixCommandKey getKey() {
+        return key;
+    }
+
+    /**
+     *
+     * @return the number of name service invocations in progress
+     */
+    int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    boolean isOpen() {
+        HystrixCircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker == null) {
+            // The circuit breaker is created lazily, i.e. when the first command is executed
+            circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(key);
+            if (circuitBreaker == null) {
+                return false;
+            }
+            this.circuitBreaker = circuitBreaker;
+        }
+        // The circuit may be also forced open, e.g. by CircuitBreakerGossip - the properties are cached, i.e. the command was already created
+        return circuitBreaker.isOpen() || HystrixPropertiesFactory.getCommandProperties(key, null).circuitBreakerForceOpen().get();
+    }
+
+    /**
+     * An ejected endpoint is not chosen by the balancer, except for a single test request per sleep window, see also {@link #tryProbe()}.
+     *
+     * @return <code>true</code> if the circuit is open
+     */
+    boolean isEjected() {
+        if (!isOpen()) {
+            ejected = false;
+            return false;
+        }
+        if (!ejected) {
+            // Hystrix does not allow a test request until the sleep window elapses
+            ejected = true;
+            nextProbe.set(System.currentTimeMillis() + getSleepWindow());
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if the caller may send a test request to an ejected endpoint
+     */
+    boolean tryProbe() {
+        long now = System.currentTimeMillis();
+        long next = nextProbe.get();
+        return now >= next && nextProbe.compareAndSet(next, now + getSleepWindow());
+    }
+
+    /**
+     * The per-endpoint command keys inherit the current {@link NameCommand} configuration. Note that Hystrix only reads the defaults when the first
+     * command is created - use <code>hystrix.command.&lt;key&gt;.*</code> to change the values of a single endpoint at runtime.
+     * <p>
+     * {@link NameCommand}, {@link NameObservableCommand} and {@link NamesCommand} share the command key, i.e. the circuit breaker, and so they
+     * must also share the isolation strategy. The strategy is taken from {@link GreetingProperties#NAME_ISOLATION} when the first command for the
+     * key is created.
+     *
+     * @return the command properties defaults
+     */
+    HystrixCommandProperties.Setter getCommandDefaults() {
+        ExecutionIsolationStrategy isolation = ExecutionIsolationStrategy.valueOf(GreetingProperties.NAME_ISOLATION.get());
+        HystrixCommandProperties.Setter defaults = HystrixCommandProperties.Setter().withExecutionIsolationStrategy(isolation);
+        if (NameCommand.KEY.name().equals(key.name())) {
+            return defaults;
+        }
+        HystrixCommandProperties properties = HystrixPropertiesFactory.getCommandProperties(NameCommand.KEY,
+                HystrixCommandProperties.Setter().withExecutionIsolationStrategy(isolation));
+        return defaults.withExecutionTimeoutInMilliseconds(properties.executionTimeoutInMilliseconds().get())
+                .withExecutionIsolationSemaphoreMaxConcurrentRequests(properties.executionIsolationSemaphoreMaxConcurrentRequests().get())
+                .withCircuitBreakerRequestVolumeThreshold(properties.circuitBreakerRequestVolumeThreshold().get())
+                .withCircuitBreakerErrorThresholdPercentage(properties.circuitBreakerErrorThresholdPercentage().get())
+                .withCircuitBreakerSleepWindowInMilliseconds(properties.circuitBreakerSleepWindowInMilliseconds().get());
+    }
+
+    private long getSleepWindow() {
+        // The properties are cached, i.e. the command was already created
+        return HystrixPropertiesFactory.getCommandProperties(key, null).circuitBreakerSleepWindowInMilliseconds().get();
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.netflix.hystrix.HystrixCommand;
+
+/**
+ * Wraps the batch name service invocation.
+ *
+ * @see NameCollapser
+ */
+public class NamesCommand extends HystrixCommand<List<String>> {
+
+    // Prefer the compact representation, older name services only support JSON
+    private static final String[] ACCEPT = { CborProvider.APPLICATION_CBOR, MediaType.APPLICATION_JSON + ";q=0.9" };
+
+    private static final GenericType<List<String>> NAMES_TYPE = new GenericType<List<String>>() {
+    };
+
+    private final Client client;
+
+    private final NameServiceEndpoint endpoint;
+
+    private final int count;
+
+    NamesCommand(Client client, NameServiceEndpoint endpoint, int count) {
+        // Share the command key with NameCommand so that a batch is guarded by the same circuit breaker
+        // Therefore the isolation strategy is shared as well - in the semaphore isolation mode the batch is executed on the collapser timer thread
+        super(Setter.withGroupKey(NameCommand.GROUP_KEY).andCommandKey(endpoint.getKey()).andThreadPoolKey(NameCommand.THREAD_POOL_KEY)
+                .andCommandPropertiesDefaults(endpoint.getCommandDefaults()));
+        this.client = client;
+        this.endpoint = endpoint;
+        this.count = count;
+    }
+
+    @Override
+    protected List<String> run() throws Exception {
+        endpoint.acquire();
+        try {
+            Response response = client.target(endpoint.getNamesUri()).request(ACCEPT).post(Entity.json(count));
+            try {
+                if (response.getStatus() != 200) {
+                    throw new RuntimeException("Cannot get names from " + endpoint.getNamesUri());
+                }
+                return response.readEntity(NAMES_TYPE);
+            } finally {
+                response.close();
+            }
+        } finally {
+            endpoint.release();
+        }
+    }
+
+    @Override
+    protected List<String> getFallback() {
+        return Collections.nCopies(count, NameCommand.FALLBACK);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * RESTEasy client engine backed by OkHttp. Unlike the Apache HttpClient engine it supports HTTP/2, i.e. multiple concurrent requests are
+ * multiplexed over a single connection instead of waiting for a pooled connection.
+ *
+ * @see ClientConfig
+ */
+class OkHttpClientEngine implements ClientHttpEngine {
+
+    private final OkHttpClient client;
+
+    OkHttpClientEngine(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return null;
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return client.hostnameVerifier();
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        Request.Builder builder = new Request.Builder().url(request.getUri().toString());
+        for (Entry<String, List<String>> header : request.getHeaders().asMap().entrySet()) {
+            for (String value : header.getValue()) {
+                builder.addHeader(header.getKey(), value);
+            }
+        }
+        RequestBody body = null;
+        if (request.getEntity() != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                request.writeRequestBody(out);
+            } catch (IOException e) {
+                throw new ProcessingException("Unable to write the request body", e);
+            }
+            javax.ws.rs.core.MediaType mediaType = request.getHeaders().getMediaType();
+            body = RequestBody.create(mediaType != null ? MediaType.parse(mediaType.toString()) : null, out.toByteArray());
+        }
+        builder.method(request.getMethod(), body);
+
+        Response response;
+        try {
+            response = client.newCall(builder.build()).execute();
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to invoke request", e);
+        }
+        OkHttpClientResponse clientResponse = new OkHttpClientResponse(request, response);
+        clientResponse.setProperties(request.getMutableProperties());
+        clientResponse.setStatus(response.code());
+        clientResponse.setHeaders(extractHeaders(response.headers()));
+        clientResponse.setClientConfiguration(request.getClientConfiguration());
+        return clientResponse;
+    }
+
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static CaseInsensitiveMap<String> extractHeaders(Headers headers) {
+        CaseInsensitiveMap<String> map = new CaseInsensitiveMap<>();
+        for (int i = 0; i < headers.size(); i++) {
+            map.add(headers.name(i), headers.value(i));
+        }
+        return map;
+    }
+
+    private static class OkHttpClientResponse extends ClientResponse {
+
+        private final Response response;
+
+        private InputStream stream;
+
+        OkHttpClientResponse(ClientInvocation request, Response response) {
+            super(request.getClientConfiguration());
+            this.response = response;
+        }
+
+        @Override
+        protected InputStream getInputStream() {
+            if (stream == null) {
+                ResponseBody body = response.body();
+                stream = body != null ? body.byteStream() : null;
+            }
+            return stream;
+        }
+
+        @Override
+        protected void setInputStream(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void releaseConnection() throws IOException {
+            // Releases the stream, the connection is kept alive
+            response.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simple lock-free token bucket used to limit the extra load caused by hedge requests and retries. Each request deposits a fraction of a token
+ * (the budget ratio), each extra request consumes one token.
+ *
+ * @see NameHedging
+ * @see NameRetry
+ */
+final class TokenBucket {
+
+    private static final long TOKEN = 1000;
+
+    private final long maxTokens;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    /**
+     *
+     * @param maxTokens the max number of tokens, i.e. the max burst of extra requests
+     */
+    TokenBucket(int maxTokens) {
+        this.maxTokens = maxTokens * TOKEN;
+    }
+
+    /**
+     *
+     * @param ratio the fraction of a token to deposit
+     */
+    void deposit(double ratio) {
+        long amount = (long) (ratio * TOKEN);
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + amount)));
+    }
+
+    /**
+     *
+     * @return <code>true</code> if a token was consumed, <code>false</code> if the bucket is empty
+     */
+    boolean tryAcquire() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+}
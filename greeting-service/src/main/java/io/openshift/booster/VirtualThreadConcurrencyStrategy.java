@@ -0,0 +1,183 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.concurrent.ContextService;
+
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+/**
+ * Executes the commands on virtual threads. Instead of a fixed pool size the number of concurrent executions per thread pool key is limited by a
+ * semaphore, see also {@link GreetingProperties#VIRTUAL_THREADS_MAX_CONCURRENCY}. The Java EE context is propagated through the
+ * {@link ContextService}, i.e. the same context as for the threads created by the managed thread factory is available.
+ * <p>
+ * Virtual threads are only available on JDK 21+ and so the API is accessed reflectively.
+ *
+ * @see HystrixConfig
+ */
+class VirtualThreadConcurrencyStrategy extends HystrixConcurrencyStrategy {
+
+    private final ContextService contextService;
+
+    VirtualThreadConcurrencyStrategy(ContextService contextService) {
+        this.contextService = contextService;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if virtual threads are supported by the current JDK
+     */
+    static boolean isSupported() {
+        return newVirtualThreadFactory("test") != null;
+    }
+
+    @Override
+    public ThreadPoolExecutor getThreadPool(HystrixThreadPoolKey threadPoolKey, HystrixProperty<Integer> corePoolSize,
+            HystrixProperty<Integer> maximumPoolSize, HystrixProperty<Integer> keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+        return new VirtualThreadExecutor(threadPoolKey);
+    }
+
+    @Override
+    public ThreadPoolExecutor getThreadPool(HystrixThreadPoolKey threadPoolKey, HystrixThreadPoolProperties threadPoolProperties) {
+        return new VirtualThreadExecutor(threadPoolKey);
+    }
+
+    @Override
+    public <T> Callable<T> wrapCallable(Callable<T> callable) {
+        // Capture the context of the submitting thread
+        @SuppressWarnings("unchecked")
+        Callable<T> contextual = contextService.createContextualProxy(callable, Callable.class);
+        return contextual;
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new virtual thread for each task. Hystrix requires a {@link ThreadPoolExecutor} - the pool itself is never used and the pool size
+     * changes are ignored.
+     */
+    private static class VirtualThreadExecutor extends ThreadPoolExecutor {
+
+        private final ThreadFactory threadFactory;
+
+        private final int maxConcurrency;
+
+        private final Semaphore permits;
+
+        private final LongAdder completed;
+
+        VirtualThreadExecutor(HystrixThreadPoolKey threadPoolKey) {
+            super(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+            this.threadFactory = newVirtualThreadFactory("hystrix-" + threadPoolKey.name() + "-");
+            this.maxConcurrency = GreetingProperties.VIRTUAL_THREADS_MAX_CONCURRENCY.get();
+            this.permits = new Semaphore(maxConcurrency);
+            this.completed = new LongAdder();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("Max concurrency reached: " + maxConcurrency);
+            }
+            try {
+                threadFactory.newThread(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        completed.increment();
+                        permits.release();
+                    }
+                }).start();
+            } catch (RuntimeException | Error e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getActiveCount() {
+            return maxConcurrency - permits.availablePermits();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return getActiveCount();
+        }
+
+        @Override
+        public int getCorePoolSize() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public int getMaximumPoolSize() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public long getCompletedTaskCount() {
+            return completed.sum();
+        }
+
+        @Override
+        public long getTaskCount() {
+            return completed.sum() + getActiveCount();
+        }
+
+        @Override
+        public void setCorePoolSize(int corePoolSize) {
+            // Ignored
+        }
+
+        @Override
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            // Ignored
+        }
+
+        @Override
+        public void setKeepAliveTime(long time, TimeUnit unit) {
+            // Ignored
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.BadRequestException;
+
+import org.junit.Test;
+
+public class AdminEndpointTest {
+
+    @Test
+    public void testGetType() {
+        assertEquals(Boolean.class, AdminEndpoint.getType("greeting.async"));
+        assertEquals(Double.class, AdminEndpoint.getType("greeting.name.hedge.budget"));
+        assertEquals(Integer.class, AdminEndpoint.getType("hystrix.command.NameCommand.circuitBreaker.sleepWindowInMilliseconds"));
+        assertEquals(Integer.class,
+                AdminEndpoint.getType("hystrix.command.NameCommand-http-name-1-8080-api-name.execution.isolation.thread.timeoutInMilliseconds"));
+        assertEquals(Integer.class, AdminEndpoint.getType("hystrix.threadpool.NameCommand-low.coreSize"));
+        assertEquals(Integer.class, AdminEndpoint.getType("hystrix.collapser.NameCollapser.maxRequestsInBatch"));
+        // Outbound targets, startup-only properties and forced circuits
+        assertNull(AdminEndpoint.getType("greeting.name.endpoints"));
+        assertNull(AdminEndpoint.getType("greeting.name.isolation"));
+        assertNull(AdminEndpoint.getType("greeting.admin.enabled"));
+        assertNull(AdminEndpoint.getType("greeting.admin.token"));
+        assertNull(AdminEndpoint.getType("greeting.bulkhead.apiKeys"));
+        assertNull(AdminEndpoint.getType("hystrix.command.NameCommand.circuitBreaker.forceOpen"));
+        assertNull(AdminEndpoint.getType("hystrix.command.NameCommand.execution.isolation.strategy"));
+        assertNull(AdminEndpoint.getType("hystrix.threadpool.NameCommand.circuitBreaker.sleepWindowInMilliseconds"));
+        assertNull(AdminEndpoint.getType("hystrix.command..coreSize"));
+    }
+
+    @Test
+    public void testValidate() {
+        AdminEndpoint.validate("greeting.async", "true");
+        AdminEndpoint.validate("greeting.cache.ttlInMilliseconds", "500");
+        AdminEndpoint.validate("greeting.name.hedge.budget", "0.2");
+        AdminEndpoint.validate("hystrix.threadpool.NameCommand.coreSize", "20");
+        assertBadRequest("greeting.async", "yes");
+        assertBadRequest("greeting.async", null);
+        assertBadRequest("hystrix.threadpool.NameCommand.coreSize", "20.5");
+        assertBadRequest("greeting.name.hedge.budget", "foo");
+        assertBadRequest("greeting.name.endpoints", "http://example.com/api/name");
+    }
+
+    private static void assertBadRequest(String key, String value) {
+        try {
+            AdminEndpoint.validate(key, value);
+            fail();
+        } catch (BadRequestException expected) {
+        }
+    }
+
+}
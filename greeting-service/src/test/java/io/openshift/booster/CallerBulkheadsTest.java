@@ -0,0 +1,128 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netflix.config.ConfigurationManager;
+
+public class CallerBulkheadsTest {
+
+    private CallerBulkheads bulkheads;
+
+    @Before
+    public void init() {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.classes", "high,default,low");
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.defaultClass", "default");
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.apiKeys", "key1=high,key2=low,key3=unknown");
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.shedThreshold", 0.8);
+        bulkheads = new CallerBulkheads();
+        bulkheads.init();
+    }
+
+    @After
+    public void destroy() {
+        bulkheads.destroy();
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.bulkhead.classes");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.bulkhead.defaultClass");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.bulkhead.apiKeys");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.bulkhead.shedThreshold");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.bulkhead.enabled");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.async");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.collapse");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.cache.enabled");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.name.isolation");
+    }
+
+    @Test
+    public void testIsActive() {
+        assertFalse(bulkheads.isActive());
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.enabled", true);
+        assertTrue(bulkheads.isActive());
+        // The async invocations do not run on the caller class pools
+        ConfigurationManager.getConfigInstance().setProperty("greeting.async", true);
+        assertFalse(bulkheads.isActive());
+        ConfigurationManager.getConfigInstance().setProperty("greeting.async", false);
+        // The batches mix the callers
+        ConfigurationManager.getConfigInstance().setProperty("greeting.collapse", true);
+        assertFalse(bulkheads.isActive());
+        // The cache takes precedence over the collapser
+        ConfigurationManager.getConfigInstance().setProperty("greeting.cache.enabled", true);
+        assertTrue(bulkheads.isActive());
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.isolation", "SEMAPHORE");
+        assertFalse(bulkheads.isActive());
+    }
+
+    @Test
+    public void testClassify() {
+        assertEquals("high", bulkheads.classify("key1", null));
+        assertEquals("low", bulkheads.classify("key2", "high"));
+        // Invalid mapping is ignored
+        assertEquals("default", bulkheads.classify("key3", null));
+        assertEquals("default", bulkheads.classify(null, null));
+        assertEquals("default", bulkheads.classify("foo", "unknown"));
+        // The header may only select the default class or a lower priority
+        assertEquals("default", bulkheads.classify(null, "default"));
+        assertEquals("low", bulkheads.classify(null, "low"));
+        assertEquals("low", bulkheads.classify("foo", "low"));
+        assertEquals("default", bulkheads.classify(null, "high"));
+        assertEquals("default", bulkheads.classify("foo", "high"));
+    }
+
+    @Test
+    public void testThreadPoolKey() {
+        assertEquals(NameCommand.THREAD_POOL_KEY, bulkheads.getThreadPoolKey("default"));
+        assertEquals("NameCommand-high", bulkheads.getThreadPoolKey("high").name());
+        assertEquals(NameCommand.THREAD_POOL_KEY, bulkheads.getThreadPoolKey("unknown"));
+    }
+
+    @Test
+    public void testShedThreshold() {
+        assertEquals(1.0, CallerBulkheads.getShedThreshold(0.8, 3, 0), 0.0001);
+        assertEquals(0.9, CallerBulkheads.getShedThreshold(0.8, 3, 1), 0.0001);
+        assertEquals(0.8, CallerBulkheads.getShedThreshold(0.8, 3, 2), 0.0001);
+        assertEquals(0.85, CallerBulkheads.getShedThreshold(0.7, 5, 2), 0.0001);
+    }
+
+    @Test
+    public void testAdmit() {
+        assertTrue(bulkheads.admit("low", () -> 0.79));
+        assertFalse(bulkheads.admit("low", () -> 0.8));
+        assertTrue(bulkheads.admit("default", () -> 0.89));
+        assertFalse(bulkheads.admit("default", () -> 0.9));
+        // The highest priority is never shed
+        assertTrue(bulkheads.admit("high", () -> 1.0));
+        assertEquals(1, bulkheads.getShedCount("low"));
+        assertEquals(1, bulkheads.getShedCount("default"));
+        assertEquals(0, bulkheads.getShedCount("high"));
+    }
+
+    @Test
+    public void testAdmitSingleClass() {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.bulkhead.classes", "default");
+        assertEquals(1, bulkheads.getClasses().size());
+        assertTrue(bulkheads.admit("default", () -> 1.0));
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.netflix.hystrix.HystrixCommandKey;
+
+import io.openshift.booster.CircuitBreakerEndpoint.CircuitBreaker;
+
+public class CircuitBreakerEndpointTest {
+
+    @Test
+    public void testStableTag() {
+        // Equal endpoints created separately, e.g. on another replica
+        assertEquals(CircuitBreaker.of(endpoints(), "co").getTag(false), CircuitBreaker.of(endpoints(), "co").getTag(false));
+        assertEquals("\"closed-co-" + Integer.toHexString("http://name-1:8080/api/name,http://name-2:8080/api/name,".hashCode()) + "\"",
+                CircuitBreaker.of(endpoints(), "co").getTag(false).toString());
+    }
+
+    @Test
+    public void testMatches() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.of(endpoints(), "co");
+        String tag = circuitBreaker.getTag(false).toString();
+        assertTrue(circuitBreaker.matches(tag, false));
+        assertFalse(circuitBreaker.matches(tag, true));
+        assertTrue(circuitBreaker.matches(circuitBreaker.getTag(true).toString(), true));
+        assertTrue(circuitBreaker.matches("*", false));
+        assertTrue(circuitBreaker.matches("W/" + tag, false));
+        assertTrue(circuitBreaker.matches("\"foo\", " + tag, false));
+        assertTrue(circuitBreaker.matches("\"foo\",W/" + tag + " ", false));
+        assertFalse(circuitBreaker.matches("\"foo\", W/\"bar\"", false));
+        assertFalse(circuitBreaker.matches(CircuitBreaker.of(endpoints(), "oo").getTag(false).toString(), false));
+    }
+
+    private static List<NameServiceEndpoint> endpoints() {
+        return Arrays.asList(new NameServiceEndpoint(URI.create("http://name-1:8080/api/name"), HystrixCommandKey.Factory.asKey("name-1")),
+                new NameServiceEndpoint(URI.create("http://name-2:8080/api/name"), HystrixCommandKey.Factory.asKey("name-2")));
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.sun.net.httpserver.HttpServer;
+
+import io.openshift.booster.CircuitBreakerGossip.ErrorWindow;
+
+public class CircuitBreakerGossipTest {
+
+    private static final String KEY = "NameCommand";
+
+    @Test
+    public void testPeerReportsAreAggregated() {
+        CircuitBreakerGossip first = new CircuitBreakerGossip();
+        CircuitBreakerGossip second = new CircuitBreakerGossip();
+        first.receive(second.encode(Collections.singletonMap(KEY, new long[] { 15, 12 })));
+        first.receive(second.encode(Collections.singletonMap(KEY, new long[] { 5, 3 })));
+        assertArrayEquals(new long[] { 20, 15 }, first.getWindow(KEY));
+        assertEquals(1, first.getPeerCount());
+        assertEquals(2, first.getReceivedCount());
+        // The replica's own messages are ignored, e.g. multicast loopback
+        first.receive(first.encode(Collections.singletonMap(KEY, new long[] { 10, 10 })));
+        assertArrayEquals(new long[] { 20, 15 }, first.getWindow(KEY));
+        // Invalid messages are ignored
+        first.receive(new byte[] { 1, 2, 3 });
+        assertArrayEquals(new long[] { 20, 15 }, first.getWindow(KEY));
+    }
+
+    @Test
+    public void testInProcessTransport() throws Exception {
+        List<byte[]> firstReceived = new CopyOnWriteArrayList<>();
+        List<byte[]> secondReceived = new CopyOnWriteArrayList<>();
+        InProcessGossipTransport first = new InProcessGossipTransport();
+        InProcessGossipTransport second = new InProcessGossipTransport();
+        first.start(firstReceived::add);
+        second.start(secondReceived::add);
+        try {
+            first.send(new byte[] { 1 });
+            assertEquals(0, firstReceived.size());
+            assertEquals(1, secondReceived.size());
+            second.close();
+            first.send(new byte[] { 2 });
+            assertEquals(1, secondReceived.size());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void testPeerReportsForceAndReleaseCircuit() throws Exception {
+        AtomicInteger status = new AtomicInteger(500);
+        AtomicInteger probes = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/name", exchange -> {
+            probes.incrementAndGet();
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.endpoints",
+                "http://localhost:" + server.getAddress().getPort() + "/api/name");
+        NameServiceBalancer balancer = new NameServiceBalancer();
+        balancer.init();
+        String key = balancer.getEndpoints().get(0).getKey().name();
+        String forceOpen = "hystrix.command." + key + ".circuitBreaker.forceOpen";
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command." + key + ".circuitBreaker.requestVolumeThreshold", 10);
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command." + key + ".circuitBreaker.sleepWindowInMilliseconds", 100);
+        CircuitBreakerGossip first = new CircuitBreakerGossip();
+        first.balancer = balancer;
+        first.client = new ResteasyClientBuilder().build();
+        CircuitBreakerGossip second = new CircuitBreakerGossip();
+        InProcessGossipTransport secondTransport = new InProcessGossipTransport();
+        try {
+            first.start(new InProcessGossipTransport());
+            second.start(secondTransport);
+            // Below the volume threshold
+            secondTransport.send(second.encode(Collections.singletonMap(key, new long[] { 9, 9 })));
+            first.gossip();
+            assertTrue(first.getForced().isEmpty());
+            assertFalse(ConfigurationManager.getConfigInstance().getBoolean(forceOpen, false));
+            // The first replica did not execute any command but the peer's errors trip the circuit
+            secondTransport.send(second.encode(Collections.singletonMap(key, new long[] { 1, 1 })));
+            first.gossip();
+            assertTrue(first.getForced().contains(key));
+            assertEquals(1, first.getTripCount());
+            assertTrue(ConfigurationManager.getConfigInstance().getBoolean(forceOpen, false));
+            // Reports received while forced open are ignored
+            secondTransport.send(second.encode(Collections.singletonMap(key, new long[] { 10, 10 })));
+            assertArrayEquals(new long[] { 10, 10 }, first.getWindow(key));
+            // Failed probe - the circuit remains forced open
+            assertTrue(awaitGossip(first, () -> probes.get() > 0));
+            assertTrue(first.getForced().contains(key));
+            assertTrue(ConfigurationManager.getConfigInstance().getBoolean(forceOpen, false));
+            assertEquals(1, first.getTripCount());
+            // Successful probe - the circuit is released and the window discarded
+            status.set(200);
+            assertTrue(awaitGossip(first, () -> first.getForced().isEmpty()));
+            assertFalse(ConfigurationManager.getConfigInstance().containsKey(forceOpen));
+            assertArrayEquals(new long[] { 0, 0 }, first.getWindow(key));
+        } finally {
+            first.stop();
+            second.stop();
+            first.client.close();
+            balancer.destroy();
+            server.stop(0);
+            ConfigurationManager.getConfigInstance().clearProperty("greeting.name.endpoints");
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command." + key + ".circuitBreaker.requestVolumeThreshold");
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command." + key + ".circuitBreaker.sleepWindowInMilliseconds");
+        }
+    }
+
+    @Test
+    public void testIsTripped() {
+        assertFalse(CircuitBreakerGossip.isTripped(0, 0, 0, 50));
+        // Volume threshold not reached
+        assertFalse(CircuitBreakerGossip.isTripped(19, 19, 20, 50));
+        assertFalse(CircuitBreakerGossip.isTripped(20, 9, 20, 50));
+        assertTrue(CircuitBreakerGossip.isTripped(20, 10, 20, 50));
+    }
+
+    @Test
+    public void testReleaseTime() {
+        for (int i = 0; i < 100; i++) {
+            long releaseAt = CircuitBreakerGossip.getReleaseTime(10_000, 5000);
+            assertTrue(releaseAt >= 15_000);
+            assertTrue(releaseAt <= 17_500);
+        }
+    }
+
+    @Test
+    public void testErrorWindow() {
+        ErrorWindow window = new ErrorWindow(1000);
+        window.add(10_000, 5, 5);
+        window.add(10_500, 5, 0);
+        assertArrayEquals(new long[] { 10, 5 }, window.sum(10_900));
+        // The first bucket expired
+        assertArrayEquals(new long[] { 5, 0 }, window.sum(11_050));
+        assertArrayEquals(new long[] { 0, 0 }, window.sum(12_000));
+        // Reused bucket is reset
+        window.add(11_000, 1, 1);
+        assertArrayEquals(new long[] { 6, 1 }, window.sum(11_050));
+    }
+
+    private static boolean awaitGossip(CircuitBreakerGossip gossip, BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (System.currentTimeMillis() < timeout) {
+            gossip.gossip();
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+}
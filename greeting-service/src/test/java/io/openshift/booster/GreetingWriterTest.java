@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.openshift.booster.GreetingEndpoint.Greeting;
+
+public class GreetingWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testAscii() throws IOException {
+        assertSameAsJackson("Hello, World!");
+        assertSameAsJackson("Hello, \"quoted\" back\\slash/");
+        assertSameAsJackson("");
+    }
+
+    @Test
+    public void testBmp() throws IOException {
+        // Two and three byte UTF-8 sequences
+        assertSameAsJackson("Hello, \u017dlu\u0165ou\u010dk\u00fd k\u016f\u0148!");
+        assertSameAsJackson("Hello, \u65e5\u672c\u8a9e \u20ac!");
+    }
+
+    @Test
+    public void testSupplementary() throws IOException {
+        assertSameAsJackson("Hello, \ud83d\ude00!");
+        // Unpaired surrogates
+        assertSameAsJackson("Hello, \ud800 \udc00!");
+        assertSameAsJackson("\ud83d");
+    }
+
+    @Test
+    public void testControlCharacters() throws IOException {
+        assertSameAsJackson("Hello,\u0000\b\t\n\u000b\f\r\u001b\u001f\u007f!");
+    }
+
+    @Test
+    public void testBufferReuse() throws IOException {
+        // The retained per-thread buffer is replaced and then reused for a short name
+        assertSameAsJackson(String.join("", Collections.nCopies(1000, "\u65e5\n")));
+        assertSameAsJackson("Hello, World!");
+    }
+
+    private static void assertSameAsJackson(String name) throws IOException {
+        Greeting greeting = new Greeting(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GreetingWriter.write(greeting, out);
+        assertArrayEquals(MAPPER.writeValueAsBytes(greeting), out.toByteArray());
+    }
+
+}
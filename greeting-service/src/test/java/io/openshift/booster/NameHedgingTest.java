@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netflix.config.ConfigurationManager;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class NameHedgingTest {
+
+    private NameHedging hedging;
+
+    @Before
+    public void init() {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.percentile", 95.0);
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.minDelayInMilliseconds", 10);
+        hedging = new NameHedging();
+        hedging.metrics = new GreetingMetrics();
+    }
+
+    @After
+    public void destroy() {
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.name.hedge.percentile");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.name.hedge.minDelayInMilliseconds");
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.name.hedge.budget");
+    }
+
+    @Test
+    public void testGetDelay() {
+        // No data yet
+        assertEquals(10, hedging.getDelay());
+        LatencyRecorder latency = hedging.metrics.getNameLatency();
+        for (int i = 1; i <= 99; i++) {
+            latency.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        latency.snapshot();
+        // Not enough samples
+        assertEquals(10, hedging.getDelay());
+        latency.record(TimeUnit.MILLISECONDS.toNanos(100));
+        latency.snapshot();
+        assertEquals(95, hedging.getDelay());
+        // The min delay is used if the percentile is lower
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.minDelayInMilliseconds", 200);
+        latency.snapshot();
+        assertEquals(200, hedging.getDelay());
+    }
+
+    @Test
+    public void testHedgeWins() {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.budget", 1.0);
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        hedging.hedge(Observable::never, () -> Observable.just("World")).subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertValue("World");
+        assertEquals(1, hedging.getRequestCount());
+        assertEquals(1, hedging.getHedgeCount());
+        assertEquals(1, hedging.getWinCount());
+        assertEquals(0, hedging.getRejectedCount());
+    }
+
+    @Test
+    public void testBudgetRejection() throws InterruptedException {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.budget", 0.0);
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        hedging.hedge(Observable::never, () -> Observable.just("World")).subscribe(subscriber);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hedging.getRejectedCount() == 0) {
+            assertTrue("Hedge request not rejected", System.nanoTime() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        subscriber.unsubscribe();
+        subscriber.assertNoValues();
+        assertEquals(1, hedging.getRequestCount());
+        assertEquals(0, hedging.getHedgeCount());
+        assertEquals(1, hedging.getRejectedCount());
+    }
+
+    @Test
+    public void testPrimaryWins() {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.hedge.budget", 1.0);
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        hedging.hedge(() -> Observable.just("World"), Observable::never).subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertValue("World");
+        // The hedge request is cancelled before it's sent
+        assertEquals(0, hedging.getHedgeCount());
+        assertEquals(0, hedging.getWinCount());
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandKey;
+
+public class NameServiceBalancerTest {
+
+    private NameServiceBalancer balancer;
+
+    @Before
+    public void init() {
+        balancer = new NameServiceBalancer();
+        balancer.init();
+    }
+
+    @After
+    public void destroy() {
+        balancer.destroy();
+        ConfigurationManager.getConfigInstance().clearProperty("greeting.name.endpoints");
+    }
+
+    @Test
+    public void testCommandKey() {
+        Set<String> used = new HashSet<>();
+        assertEquals("NameCommand-http-name-1-8080-api-name",
+                NameServiceBalancer.commandKey(URI.create("http://name-1:8080/api/name"), 0, used).name());
+        // No port
+        assertEquals("NameCommand-http-name-1-api-name", NameServiceBalancer.commandKey(URI.create("http://name-1/api/name"), 0, used).name());
+        // Trailing slash
+        assertEquals("NameCommand-https-name-1-v2-api-name",
+                NameServiceBalancer.commandKey(URI.create("https://name-1/v2/api/name/"), 0, used).name());
+        used.add("NameCommand-http-name-1-8080-api-name");
+        assertEquals("NameCommand-http-name-1-8080-api-name-3",
+                NameServiceBalancer.commandKey(URI.create("http://name.1:8080/api/name"), 3, used).name());
+    }
+
+    @Test
+    public void testEndpoints() {
+        assertEquals(Collections.singletonList(NameServiceEndpoint.DEFAULT), balancer.getEndpoints());
+        setEndpoints("http://name:8080/api/name,http://name:8080/v2/api/name,https://name:8080/api/name");
+        List<NameServiceEndpoint> endpoints = balancer.getEndpoints();
+        assertEquals(3, endpoints.size());
+        Set<String> keys = new HashSet<>();
+        for (NameServiceEndpoint endpoint : endpoints) {
+            keys.add(endpoint.getKey().name());
+            assertTrue(balancer.isEndpointKey(endpoint.getKey()));
+        }
+        // The endpoints that differ by path or scheme do not share the circuit breaker
+        assertEquals(3, keys.size());
+        // The existing endpoints are reused
+        endpoints.get(0).acquire();
+        setEndpoints("http://name:8080/api/name,http://name-2:8080/api/name");
+        assertEquals(1, balancer.getEndpoints().get(0).getOutstanding());
+        // A single endpoint uses the NameCommand key
+        setEndpoints("http://name:8080/api/name");
+        assertEquals(NameCommand.KEY.name(), balancer.getEndpoints().get(0).getKey().name());
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() {
+        setEndpoints("http://choice-1:8080/api/name,http://choice-2:8080/api/name");
+        List<NameServiceEndpoint> endpoints = balancer.getEndpoints();
+        endpoints.get(0).acquire();
+        // Both endpoints are always picked, the one with less outstanding invocations wins
+        for (int i = 0; i < 100; i++) {
+            assertEquals(endpoints.get(1), balancer.choose());
+        }
+        setEndpoints("http://choice-1:8080/api/name,http://choice-2:8080/api/name,http://choice-3:8080/api/name");
+        endpoints = balancer.getEndpoints();
+        endpoints.get(1).acquire();
+        endpoints.get(2).acquire();
+        endpoints.get(2).acquire();
+        // The most loaded endpoint never wins
+        Set<NameServiceEndpoint> chosen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            NameServiceEndpoint endpoint = balancer.choose();
+            assertNotEquals(endpoints.get(2), endpoint);
+            chosen.add(endpoint);
+        }
+        assertEquals(2, chosen.size());
+    }
+
+    @Test
+    public void testEjectionAndProbe() throws InterruptedException {
+        setEndpoints("http://eject-1:8080/api/name,http://eject-2:8080/api/name");
+        List<NameServiceEndpoint> endpoints = balancer.getEndpoints();
+        NameServiceEndpoint ejected = endpoints.get(0);
+        HystrixCommandKey key = ejected.getKey();
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command." + key.name() + ".circuitBreaker.sleepWindowInMilliseconds", 200);
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command." + key.name() + ".circuitBreaker.forceOpen", true);
+        try {
+            // The circuit breaker is created with the first command
+            execute(key);
+            assertTrue(ejected.isOpen());
+            assertTrue(ejected.isEjected());
+            assertFalse(endpoints.get(1).isEjected());
+            // The ejected endpoint is not chosen even if it's less loaded
+            endpoints.get(1).acquire();
+            for (int i = 0; i < 100; i++) {
+                assertEquals(endpoints.get(1), balancer.choose());
+            }
+            // A single test request is allowed after the sleep window
+            assertFalse(ejected.tryProbe());
+            TimeUnit.MILLISECONDS.sleep(250);
+            assertEquals(ejected, balancer.choose());
+            assertFalse(ejected.tryProbe());
+            assertEquals(endpoints.get(1), balancer.choose());
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command." + key.name() + ".circuitBreaker.forceOpen");
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.command." + key.name() + ".circuitBreaker.sleepWindowInMilliseconds");
+        }
+        // The circuit is closed again
+        assertFalse(ejected.isEjected());
+    }
+
+    private void setEndpoints(String value) {
+        ConfigurationManager.getConfigInstance().setProperty("greeting.name.endpoints", value);
+    }
+
+    private static void execute(HystrixCommandKey key) {
+        new HystrixCommand<String>(HystrixCommand.Setter.withGroupKey(NameCommand.GROUP_KEY).andCommandKey(key)) {
+
+            @Override
+            protected String run() {
+                return NameCommand.FALLBACK;
+            }
+
+            @Override
+            protected String getFallback() {
+                return NameCommand.FALLBACK;
+            }
+
+        }.execute();
+    }
+
+}
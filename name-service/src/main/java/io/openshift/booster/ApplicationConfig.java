@@ -36,6 +36,7 @@ public class ApplicationConfig extends Application {
     public Set<Object> getSingletons() {
         Set<Object> singletons = new HashSet<>();
         singletons.add(new NameEndpoint());
+        singletons.add(new CborProvider());
         CorsFilter corsFilter = new CorsFilter();
         corsFilter.getAllowedOrigins().add("*");
         singletons.add(corsFilter);
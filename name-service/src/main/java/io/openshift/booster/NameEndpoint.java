@@ -17,16 +17,25 @@
  */
 package io.openshift.booster;
 
-import java.time.LocalTime;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 
 /**
  *
@@ -35,33 +44,120 @@ import javax.ws.rs.core.Response;
 @Path("/")
 public class NameEndpoint {
 
-    private AtomicBoolean isOn = new AtomicBoolean(true);
+    static final String NAME = "World";
+
+    static final String DOWN = "Name service down";
+
+    static final String OVERLOADED = "Name service overloaded";
+
+    // The greeting service collapses at most 100 requests by default, see also hystrix.collapser.NameCollapser.maxRequestsInBatch
+    static final int MAX_NAMES = 1000;
 
+    // Shared with NameHandler
+    private static final AtomicReference<NameServiceState> STATE = new AtomicReference<>(NameServiceState.OK);
+
+    // Completes the delayed responses, i.e. no request thread is blocked, see also NameServiceLifecycle
+    private static volatile ScheduledExecutorService delayed;
+
+    static NameServiceState getState() {
+        return STATE.get();
+    }
+
+    /**
+     *
+     * @param executor the executor used to complete the delayed responses or <code>null</code> if the application is undeployed
+     */
+    static void setDelayedExecutor(ScheduledExecutorService executor) {
+        delayed = executor;
+    }
+
+    /**
+     * Only used if the fast path is disabled, see also {@link NameHandler}.
+     *
+     * @param asyncResponse
+     */
     @GET
     @Path("/name")
     @Produces(MediaType.TEXT_PLAIN)
-    public Response getName() {
-        NameWebSocketEndpoint.send(LocalTime.now().toString() + (isOn.get() ? " OK" : " FAIL"));
-        return isOn.get() ? Response.ok("World").build() : Response.serverError().entity("Name service down").build();
+    public void getName(@Suspended AsyncResponse asyncResponse) {
+        NameServiceState state = STATE.get();
+        int status = state.nextStatus();
+        NameWebSocketEndpoint.REQUEST_LOG.record(status == 200, 1);
+        resume(asyncResponse, state, status, status == 200 ? Response.ok(NAME).build() : error(status));
     }
 
+    /**
+     * Batch variant of {@link #getName(AsyncResponse)}.
+     *
+     * @param count the number of requested names, at most {@value #MAX_NAMES}
+     * @param asyncResponse the list of names of the requested size
+     */
+    @POST
+    @Path("/names")
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR })
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void getNames(int count, @Suspended AsyncResponse asyncResponse) {
+        if (count < 1 || count > MAX_NAMES) {
+            asyncResponse.resume(Response.status(Status.BAD_REQUEST).entity("Invalid number of names: " + count).build());
+            return;
+        }
+        NameServiceState state = STATE.get();
+        int status = state.nextStatus();
+        NameWebSocketEndpoint.REQUEST_LOG.record(status == 200, count);
+        resume(asyncResponse, state, status, status == 200 ? Response.ok(Collections.nCopies(count, NAME)).build() : error(status));
+    }
+
+    /**
+     * E.g. <code>{"state":"ok","failureProbability":0.1,"latency":{"distribution":"lognormal","median":20,"p99":250},"maxRequestsPerSecond":500}
+     * </code>. The latency is in milliseconds, the supported distributions are {@value NameServiceState#FIXED} (<code>value</code>),
+     * {@value NameServiceState#UNIFORM} (<code>min</code> and <code>max</code>) and {@value NameServiceState#LOGNORMAL} (<code>median</code> and
+     * <code>p99</code>).
+     *
+     * @param info
+     * @return the current state
+     */
     @PUT
     @Path("/state")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public ServiceInfo toggle(ServiceInfo info) {
-        isOn.set(info.isOn());
-        NameWebSocketEndpoint.send("state:" + isOn.get());
-        return getInfo();
+    public Response toggle(ServiceInfo info) {
+        NameServiceState state;
+        try {
+            state = new NameServiceState(info);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        STATE.set(state);
+        NameWebSocketEndpoint.send("state:" + state.isOn());
+        return Response.ok(getInfo()).build();
     }
 
     @GET
     @Path("/info")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR })
     public ServiceInfo getInfo() {
-        return isOn.get() ? ServiceInfo.OK : ServiceInfo.FAIL;
+        return STATE.get().getInfo();
+    }
+
+    private static Response error(int status) {
+        return Response.status(status).entity(status == 503 ? OVERLOADED : DOWN).build();
+    }
+
+    private static void resume(AsyncResponse asyncResponse, NameServiceState state, int status, Response response) {
+        // Rejected requests are not delayed
+        long delay = status == 503 ? 0 : state.nextDelay();
+        ScheduledExecutorService executor = delayed;
+        if (delay > 0 && executor != null) {
+            executor.schedule(() -> asyncResponse.resume(response), delay, TimeUnit.NANOSECONDS);
+        } else {
+            asyncResponse.resume(response);
+        }
     }
 
+    /**
+     * The fault injection attributes are omitted if not set.
+     */
+    @JsonInclude(Include.NON_NULL)
     static class ServiceInfo {
 
         static final ServiceInfo OK = new ServiceInfo("ok");
@@ -69,22 +165,112 @@ public class NameEndpoint {
 
         private final String state;
 
+        private final Double failureProbability;
+
+        private final Latency latency;
+
+        private final Integer maxRequestsPerSecond;
+
         public ServiceInfo() {
-            this.state = null;
+            this(null);
         }
 
         public ServiceInfo(String state) {
+            this(state, null, null, null);
+        }
+
+        public ServiceInfo(String state, Double failureProbability, Latency latency, Integer maxRequestsPerSecond) {
             this.state = state;
+            this.failureProbability = failureProbability;
+            this.latency = latency;
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
         }
 
         public String getState() {
             return state;
         }
 
+        /**
+         *
+         * @return the probability that a request fails, between 0 and 1
+         */
+        public Double getFailureProbability() {
+            return failureProbability;
+        }
+
+        public Latency getLatency() {
+            return latency;
+        }
+
+        /**
+         *
+         * @return the throughput cap, requests over the cap are rejected with <code>503</code>
+         */
+        public Integer getMaxRequestsPerSecond() {
+            return maxRequestsPerSecond;
+        }
+
         boolean isOn() {
             return "ok".equals(state);
         }
 
+        /**
+         * All the values are in milliseconds.
+         */
+        @JsonInclude(Include.NON_NULL)
+        static class Latency {
+
+            private final String distribution;
+
+            private final Double value;
+
+            private final Double min;
+
+            private final Double max;
+
+            private final Double median;
+
+            private final Double p99;
+
+            public Latency() {
+                this(null, null, null, null, null, null);
+            }
+
+            public Latency(String distribution, Double value, Double min, Double max, Double median, Double p99) {
+                this.distribution = distribution;
+                this.value = value;
+                this.min = min;
+                this.max = max;
+                this.median = median;
+                this.p99 = p99;
+            }
+
+            public String getDistribution() {
+                return distribution;
+            }
+
+            public Double getValue() {
+                return value;
+            }
+
+            public Double getMin() {
+                return min;
+            }
+
+            public Double getMax() {
+                return max;
+            }
+
+            public Double getMedian() {
+                return median;
+            }
+
+            public Double getP99() {
+                return p99;
+            }
+
+        }
+
     }
 
 }
@@ -0,0 +1,129 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+
+/**
+ * Serves <code>GET /api/name</code> directly on the I/O thread, i.e. without the servlet and JAX-RS dispatch. The response bodies are encoded once.
+ * The state, including the injected faults, is shared with {@link NameEndpoint} and the CORS headers are the same as those added by the
+ * <code>CorsFilter</code> registered in {@link ApplicationConfig}. All other requests are delegated to the next handler.
+ *
+ * @see NameServletExtension
+ */
+final class NameHandler implements HttpHandler {
+
+    static final String PATH = "/api/name";
+
+    private static final ByteBuffer OK = encode(NameEndpoint.NAME);
+
+    private static final ByteBuffer DOWN = encode(NameEndpoint.DOWN);
+
+    private static final ByteBuffer OVERLOADED = encode(NameEndpoint.OVERLOADED);
+
+    private static final String TEXT_PLAIN = "text/plain";
+
+    private static final HttpString ALLOW_ORIGIN = new HttpString("Access-Control-Allow-Origin");
+
+    private static final HttpString ALLOW_CREDENTIALS = new HttpString("Access-Control-Allow-Credentials");
+
+    private static final HttpString ALLOW_METHODS = new HttpString("Access-Control-Allow-Methods");
+
+    private static final HttpString ALLOW_HEADERS = new HttpString("Access-Control-Allow-Headers");
+
+    private static final HttpString REQUEST_METHOD = new HttpString("Access-Control-Request-Method");
+
+    private static final HttpString REQUEST_HEADERS = new HttpString("Access-Control-Request-Headers");
+
+    private final HttpHandler next;
+
+    NameHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!PATH.equals(exchange.getRelativePath())) {
+            next.handleRequest(exchange);
+            return;
+        }
+        HttpString method = exchange.getRequestMethod();
+        String origin = exchange.getRequestHeaders().getFirst(Headers.ORIGIN);
+        if (Methods.GET.equals(method)) {
+            NameServiceState state = NameEndpoint.getState();
+            int status = state.nextStatus();
+            NameWebSocketEndpoint.REQUEST_LOG.record(status == StatusCodes.OK, 1);
+            // Rejected requests are not delayed
+            long delay = status == StatusCodes.SERVICE_UNAVAILABLE ? 0 : state.nextDelay();
+            if (delay > 0) {
+                // The response is sent by a timer task of the same I/O thread, i.e. no thread is blocked
+                exchange.dispatch(SameThreadExecutor.INSTANCE,
+                        () -> exchange.getIoThread().executeAfter(() -> respond(exchange, status, origin), delay, TimeUnit.NANOSECONDS));
+            } else {
+                respond(exchange, status, origin);
+            }
+        } else if (Methods.OPTIONS.equals(method) && origin != null) {
+            // Preflight request
+            HeaderMap headers = exchange.getResponseHeaders();
+            headers.put(ALLOW_ORIGIN, origin).put(ALLOW_CREDENTIALS, "true");
+            String requestMethod = exchange.getRequestHeaders().getFirst(REQUEST_METHOD);
+            if (requestMethod != null) {
+                headers.put(ALLOW_METHODS, requestMethod);
+            }
+            String requestHeaders = exchange.getRequestHeaders().getFirst(REQUEST_HEADERS);
+            if (requestHeaders != null) {
+                headers.put(ALLOW_HEADERS, requestHeaders);
+            }
+            exchange.endExchange();
+        } else {
+            next.handleRequest(exchange);
+        }
+    }
+
+    private static void respond(HttpServerExchange exchange, int status, String origin) {
+        HeaderMap headers = exchange.getResponseHeaders();
+        if (origin != null) {
+            headers.put(ALLOW_ORIGIN, origin).put(ALLOW_CREDENTIALS, "true");
+        }
+        headers.put(Headers.CONTENT_TYPE, TEXT_PLAIN);
+        exchange.setStatusCode(status);
+        ByteBuffer body = status == StatusCodes.OK ? OK : (status == StatusCodes.SERVICE_UNAVAILABLE ? OVERLOADED : DOWN);
+        // Each exchange needs its own position and limit
+        exchange.getResponseSender().send(body.duplicate());
+    }
+
+    private static ByteBuffer encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Direct buffers are written to the socket without copying
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+}
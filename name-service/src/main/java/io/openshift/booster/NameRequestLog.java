@@ -0,0 +1,114 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.time.LocalTime;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Aggregates the name requests for the <code>/name-ws</code> clients. The request path only increments a counter, a background aggregator sends a
+ * summary frame once per interval, e.g. <code>summary:120 OK / 3 FAIL in last 250ms</code>. At most <code>maxSamples</code> individual requests per
+ * interval are also sent, i.e. the log is still detailed at low request rates. The aggregator is driven by the executor passed to
+ * {@link #start(ScheduledExecutorService)}, see also {@link NameServiceLifecycle}.
+ */
+final class NameRequestLog {
+
+    static final String SUMMARY = "summary:";
+
+    private static final Logger LOGGER = Logger.getLogger(NameRequestLog.class.getName());
+
+    private final long interval;
+
+    private final int maxSamples;
+
+    private final LongAdder ok;
+
+    private final LongAdder fail;
+
+    private final AtomicInteger samples;
+
+    private ScheduledFuture<?> aggregator;
+
+    /**
+     *
+     * @param interval the aggregation interval in milliseconds
+     * @param maxSamples the max number of individual requests sent per interval
+     */
+    NameRequestLog(long interval, int maxSamples) {
+        this.interval = interval;
+        this.maxSamples = maxSamples;
+        this.ok = new LongAdder();
+        this.fail = new LongAdder();
+        this.samples = new AtomicInteger();
+    }
+
+    /**
+     *
+     * @param executor the executor used to send the summary periodically
+     */
+    synchronized void start(ScheduledExecutorService executor) {
+        if (aggregator == null) {
+            aggregator = executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop sending the summary.
+     */
+    synchronized void stop() {
+        if (aggregator != null) {
+            aggregator.cancel(false);
+            aggregator = null;
+        }
+    }
+
+    /**
+     * This method never blocks.
+     *
+     * @param on
+     * @param count the number of names requested
+     */
+    void record(boolean on, int count) {
+        (on ? ok : fail).increment();
+        // Check first so that the counter is not contended once the limit is reached
+        if (samples.get() < maxSamples && samples.getAndIncrement() < maxSamples && NameWebSocketEndpoint.isActive()) {
+            NameWebSocketEndpoint.send(LocalTime.now().toString() + (on ? " OK" : " FAIL") + (count > 1 ? " x" + count : ""));
+        }
+    }
+
+    void flush() {
+        try {
+            long okCount = ok.sumThenReset();
+            long failCount = fail.sumThenReset();
+            samples.set(0);
+            if ((okCount > 0 || failCount > 0) && NameWebSocketEndpoint.isActive()) {
+                NameWebSocketEndpoint.send(SUMMARY + okCount + " OK / " + failCount + " FAIL in last " + interval + "ms");
+            }
+        } catch (Throwable e) {
+            // Never let the exception suppress the subsequent flushes
+            LOGGER.log(Level.WARNING, "Unable to flush the name request log", e);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Starts the background tasks when the application is deployed and stops them when it's undeployed. The tasks are executed by the container's
+ * managed scheduled executor, i.e. no thread is created by the application.
+ */
+@WebListener
+public class NameServiceLifecycle implements ServletContextListener {
+
+    // The default executor is used
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ManagedScheduledExecutorService executor;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        NameWebSocketEndpoint.BROADCASTER.start(executor);
+        NameWebSocketEndpoint.REQUEST_LOG.start(executor);
+        NameEndpoint.setDelayedExecutor(executor);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        NameEndpoint.setDelayedExecutor(null);
+        NameWebSocketEndpoint.REQUEST_LOG.stop();
+        NameWebSocketEndpoint.BROADCASTER.stop();
+    }
+
+}
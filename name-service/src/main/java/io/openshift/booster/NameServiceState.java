@@ -0,0 +1,178 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.openshift.booster.NameEndpoint.ServiceInfo;
+import io.openshift.booster.NameEndpoint.ServiceInfo.Latency;
+
+/**
+ * An immutable snapshot of the name service state set via <code>PUT /api/state</code>, including the injected faults: failure probability,
+ * latency and throughput cap. Shared by {@link NameEndpoint} and {@link NameHandler}.
+ */
+final class NameServiceState {
+
+    static final String FIXED = "fixed";
+
+    static final String UNIFORM = "uniform";
+
+    static final String LOGNORMAL = "lognormal";
+
+    static final NameServiceState OK = new NameServiceState(ServiceInfo.OK);
+
+    static final NameServiceState FAIL = new NameServiceState(ServiceInfo.FAIL);
+
+    // The 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326348;
+
+    // Caps the lognormal tail
+    private static final long MAX_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+    private final ServiceInfo info;
+
+    private final boolean on;
+
+    private final double failureProbability;
+
+    // Nanoseconds, null means no delay
+    private final LongSupplier delay;
+
+    // Nanoseconds per request, 0 means no cap
+    private final long interval;
+
+    // Bursts of up to 100 ms worth of requests are allowed
+    private final long burst;
+
+    // The theoretical arrival time of the next request, see also GCRA
+    private final AtomicLong nextArrival;
+
+    /**
+     *
+     * @param info
+     * @throws IllegalArgumentException if the info is not valid
+     */
+    NameServiceState(ServiceInfo info) {
+        if (!"ok".equals(info.getState()) && !"fail".equals(info.getState())) {
+            throw new IllegalArgumentException("State must be either ok or fail: " + info.getState());
+        }
+        this.info = info;
+        this.on = info.isOn();
+        Double failureProbability = info.getFailureProbability();
+        if (failureProbability != null && (failureProbability < 0 || failureProbability > 1)) {
+            throw new IllegalArgumentException("Failure probability must be between 0 and 1: " + failureProbability);
+        }
+        this.failureProbability = failureProbability != null ? failureProbability : 0;
+        this.delay = info.getLatency() != null ? createDelay(info.getLatency()) : null;
+        Integer maxRequestsPerSecond = info.getMaxRequestsPerSecond();
+        if (maxRequestsPerSecond != null && maxRequestsPerSecond < 1) {
+            throw new IllegalArgumentException("Max requests per second must be positive: " + maxRequestsPerSecond);
+        }
+        this.interval = maxRequestsPerSecond != null ? TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond : 0;
+        this.burst = Math.max(interval, TimeUnit.MILLISECONDS.toNanos(100));
+        this.nextArrival = new AtomicLong(System.nanoTime());
+    }
+
+    ServiceInfo getInfo() {
+        return info;
+    }
+
+    boolean isOn() {
+        return on;
+    }
+
+    /**
+     *
+     * @return the response status code, i.e. <code>200</code>, <code>500</code> if the request should fail or <code>503</code> if the throughput cap
+     *         is exceeded
+     */
+    int nextStatus() {
+        if (interval > 0 && !tryAcquire()) {
+            return 503;
+        }
+        if (!on || (failureProbability > 0 && ThreadLocalRandom.current().nextDouble() < failureProbability)) {
+            return 500;
+        }
+        return 200;
+    }
+
+    /**
+     *
+     * @return the delay in nanoseconds
+     */
+    long nextDelay() {
+        return delay != null ? Math.min(delay.getAsLong(), MAX_DELAY) : 0;
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long current;
+        long next;
+        do {
+            current = nextArrival.get();
+            next = Math.max(current, now) + interval;
+            if (next - now > burst) {
+                return false;
+            }
+        } while (!nextArrival.compareAndSet(current, next));
+        return true;
+    }
+
+    private static LongSupplier createDelay(Latency latency) {
+        String distribution = latency.getDistribution() != null ? latency.getDistribution().toLowerCase(Locale.ENGLISH) : FIXED;
+        switch (distribution) {
+            case FIXED:
+                long value = toNanos(require(latency.getValue(), "value"));
+                return () -> value;
+            case UNIFORM:
+                long min = toNanos(require(latency.getMin(), "min"));
+                long max = toNanos(require(latency.getMax(), "max"));
+                if (max < min) {
+                    throw new IllegalArgumentException("Max latency must not be less than min: " + max + " < " + min);
+                }
+                return () -> min + ThreadLocalRandom.current().nextLong(max - min + 1);
+            case LOGNORMAL:
+                double median = require(latency.getMedian(), "median");
+                double p99 = require(latency.getP99(), "p99");
+                if (median <= 0 || p99 < median) {
+                    throw new IllegalArgumentException("Lognormal latency requires 0 < median <= p99: " + median + ", " + p99);
+                }
+                double mu = Math.log(TimeUnit.MILLISECONDS.toNanos(1) * median);
+                double sigma = (Math.log(p99) - Math.log(median)) / Z_99;
+                return () -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+            default:
+                throw new IllegalArgumentException("Unsupported latency distribution: " + latency.getDistribution());
+        }
+    }
+
+    private static double require(Double millis, String name) {
+        if (millis == null || millis < 0) {
+            throw new IllegalArgumentException("Latency " + name + " must be set and non-negative: " + millis);
+        }
+        return millis;
+    }
+
+    private static long toNanos(double millis) {
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import io.undertow.servlet.ServletExtension;
+import io.undertow.servlet.api.DeploymentInfo;
+
+/**
+ * Registers the {@link NameHandler} fast path in front of the servlet handler chain. Set the <code>name.fastPath.enabled</code> system property to
+ * <code>false</code> to serve <code>/api/name</code> through JAX-RS instead.
+ */
+public class NameServletExtension implements ServletExtension {
+
+    static final String FAST_PATH_ENABLED = "name.fastPath.enabled";
+
+    private static final Logger LOGGER = Logger.getLogger(NameServletExtension.class.getName());
+
+    @Override
+    public void handleDeployment(DeploymentInfo deploymentInfo, ServletContext servletContext) {
+        if (Boolean.parseBoolean(System.getProperty(FAST_PATH_ENABLED, "true"))) {
+            deploymentInfo.addInitialHandlerChainWrapper(NameHandler::new);
+            LOGGER.info("Fast path registered for " + NameHandler.PATH);
+        }
+    }
+
+}
@@ -17,10 +17,6 @@
  */
 package io.openshift.booster;
 
-import java.io.IOException;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
 import javax.websocket.CloseReason;
 import javax.websocket.EndpointConfig;
 import javax.websocket.OnClose;
@@ -35,26 +31,41 @@ import javax.websocket.server.ServerEndpoint;
 @ServerEndpoint("/name-ws")
 public class NameWebSocketEndpoint {
 
-    static Queue<Session> queue = new ConcurrentLinkedQueue<>();
+    // Started by NameServiceLifecycle
+    static final WebSocketBroadcaster BROADCASTER = new WebSocketBroadcaster(false);
+
+    /**
+     * The aggregation interval and the number of individual requests per interval may be set via the <code>name.log.intervalInMilliseconds</code>
+     * and <code>name.log.maxSamples</code> system properties.
+     */
+    static final NameRequestLog REQUEST_LOG = new NameRequestLog(Long.getLong("name.log.intervalInMilliseconds", 250),
+            Integer.getInteger("name.log.maxSamples", 5));
 
+    /**
+     * The message is sent asynchronously, this method never blocks.
+     *
+     * @param msg
+     */
     static void send(String msg) {
-        for (Session session : queue) {
-            try {
-                session.getBasicRemote().sendText(msg);
-            } catch (IOException e) {
-                throw new RuntimeException("Cannot send message using " + session, e);
-            }
-        }
+        BROADCASTER.broadcast(msg);
+    }
+
+    /**
+     *
+     * @return <code>true</code> if there is at least one session, i.e. the caller may skip building a message otherwise
+     */
+    static boolean isActive() {
+        return BROADCASTER.size() > 0;
     }
 
     @OnOpen
     public void open(Session session, EndpointConfig conf) {
-        queue.add(session);
+        BROADCASTER.add(session);
     }
 
     @OnClose
     public void close(Session session, CloseReason reason) {
-        queue.remove(session);
+        BROADCASTER.remove(session);
     }
 
 }
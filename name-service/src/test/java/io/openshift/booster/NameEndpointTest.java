@@ -16,6 +16,17 @@
 package io.openshift.booster;
 
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.MediaType;
 
@@ -27,6 +38,11 @@ import org.wildfly.swarm.arquillian.DefaultDeployment;
 
 import com.jayway.restassured.RestAssured;
 
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
 /**
  *
  * @author Martin Kouba
@@ -47,21 +63,105 @@ public class NameEndpointTest {
         RestAssured.when().get(BASE_URI + "/name").then().assertThat().statusCode(200).body(equalTo("World"));
     }
 
+    @Test
+    @RunAsClient
+    public void testGetNameCors() {
+        RestAssured.given().header("Origin", "http://localhost:8081").get(BASE_URI + "/name").then().assertThat().statusCode(200)
+                .header("Access-Control-Allow-Origin", "http://localhost:8081").body(equalTo("World"));
+        // Preflight
+        RestAssured.given().header("Origin", "http://localhost:8081").header("Access-Control-Request-Method", "GET").options(BASE_URI + "/name").then()
+                .assertThat().statusCode(200).header("Access-Control-Allow-Origin", "http://localhost:8081").header("Access-Control-Allow-Methods", "GET");
+    }
+
+    @Test
+    @RunAsClient
+    public void testGetNameH2c() throws Exception {
+        // Cleartext HTTP/2 with prior knowledge
+        OkHttpClient client = new OkHttpClient.Builder().protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE)).build();
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            // Establish the connection first
+            client.newCall(new Request.Builder().url(BASE_URI + "/name").build()).execute().close();
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                responses.add(executor.submit(() -> client.newCall(new Request.Builder().url(BASE_URI + "/name").build()).execute()));
+            }
+            for (Future<Response> future : responses) {
+                try (Response response = future.get(10, TimeUnit.SECONDS)) {
+                    assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, response.protocol());
+                    assertEquals(200, response.code());
+                    assertEquals("World", response.body().string());
+                }
+            }
+            // All the requests are multiplexed over a single connection
+            assertEquals(1, client.connectionPool().connectionCount());
+        } finally {
+            executor.shutdownNow();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    @Test
+    @RunAsClient
+    public void testGetNames() {
+        RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("3").post(BASE_URI + "/names").then().assertThat().statusCode(200)
+                .body(equalTo("[\"World\",\"World\",\"World\"]"));
+        RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("0").post(BASE_URI + "/names").then().assertThat().statusCode(400);
+        RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("1000").post(BASE_URI + "/names").then().assertThat().statusCode(200);
+        RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("1001").post(BASE_URI + "/names").then().assertThat().statusCode(400);
+    }
+
     @Test
     @RunAsClient
     public void testGetInfo() {
         RestAssured.when().get(BASE_URI + "/info").then().assertThat().statusCode(200).body(equalTo(OK));
     }
 
+    @Test
+    @RunAsClient
+    public void testGetInfoCbor() throws IOException {
+        byte[] body = RestAssured.given().accept(CborProvider.APPLICATION_CBOR).get(BASE_URI + "/info").then().assertThat().statusCode(200)
+                .contentType(CborProvider.APPLICATION_CBOR).extract().asByteArray();
+        assertEquals("ok", CborProvider.MAPPER.readTree(body).get("state").asText());
+    }
+
     @Test
     @RunAsClient
     public void testToggle() {
         RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body(FAIL).put(BASE_URI + "/state").then().assertThat().statusCode(200)
                 .body(equalTo(FAIL));
         RestAssured.when().get(BASE_URI + "/info").then().assertThat().statusCode(200).body(equalTo(FAIL));
+        RestAssured.when().get(BASE_URI + "/name").then().assertThat().statusCode(500).body(equalTo("Name service down"));
         RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body(OK).put(BASE_URI + "/state").then().assertThat().statusCode(200)
                 .body(equalTo(OK));
         RestAssured.when().get(BASE_URI + "/info").then().assertThat().statusCode(200).body(equalTo(OK));
     }
 
+    @Test
+    @RunAsClient
+    public void testFaultInjection() {
+        try {
+            String faults = "{\"state\":\"ok\",\"failureProbability\":1.0,\"latency\":{\"distribution\":\"fixed\",\"value\":200.0}}";
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body(faults).put(BASE_URI + "/state").then().assertThat()
+                    .statusCode(200).body(equalTo(faults));
+            long start = System.nanoTime();
+            RestAssured.when().get(BASE_URI + "/name").then().assertThat().statusCode(500).body(equalTo("Name service down"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("{\"state\":\"ok\",\"maxRequestsPerSecond\":1}")
+                    .put(BASE_URI + "/state").then().assertThat().statusCode(200);
+            RestAssured.when().get(BASE_URI + "/name").then().assertThat().statusCode(200);
+            RestAssured.when().get(BASE_URI + "/name").then().assertThat().statusCode(503);
+            // Invalid probability
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("{\"state\":\"ok\",\"failureProbability\":2}")
+                    .put(BASE_URI + "/state").then().assertThat().statusCode(400);
+            // The state is required
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("{\"failureProbability\":0.1}").put(BASE_URI + "/state")
+                    .then().assertThat().statusCode(400);
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body("{\"state\":\"degraded\"}").put(BASE_URI + "/state")
+                    .then().assertThat().statusCode(400);
+        } finally {
+            RestAssured.given().header("Content-type", MediaType.APPLICATION_JSON).body(OK).put(BASE_URI + "/state").then().assertThat().statusCode(200);
+        }
+    }
+
 }
@@ -0,0 +1,190 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.jayway.restassured.RestAssured;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Starts both services locally and drives the greeting to name service path with each client protocol, i.e. <code>greeting.client.protocol</code>
+ * set to <code>HTTP_1_1</code> (Apache HttpClient engine) and <code>H2C</code> (OkHttp engine). The single name, the collapsed batch (entity write
+ * and CBOR negotiation) and the async invocation are exercised, as well as the failure responses - the connections must be released so that the
+ * following requests are not starved.
+ *
+ * @see LocalServices
+ */
+@RunWith(Parameterized.class)
+public class ClientProtocolIT {
+
+    private static final String HELLO_WORLD = "Hello, World!";
+
+    private static final String FALLBACK = "Fallback";
+
+    // More than the default connection pool size, see also greeting.client.pool.maxTotal
+    private static final int REQUESTS = 100;
+
+    private static final String ADMIN_TOKEN = UUID.randomUUID().toString();
+
+    private static Process nameService;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> protocols() {
+        return Arrays.asList(new Object[][] { { "HTTP_1_1" }, { "H2C" } });
+    }
+
+    private final String protocol;
+
+    private final OkHttpClient client = new OkHttpClient.Builder().readTimeout(10, TimeUnit.SECONDS).build();
+
+    private Process greetingService;
+
+    public ClientProtocolIT(String protocol) {
+        this.protocol = protocol;
+    }
+
+    @BeforeClass
+    public static void setupNameService() throws Exception {
+        nameService = LocalServices.startNameService(Collections.emptyList());
+        await().pollInterval(1, TimeUnit.SECONDS).atMost(2, TimeUnit.MINUTES).until(() -> {
+            try {
+                return RestAssured.get(LocalServices.NAME_BASE_URI + "/api/info").getStatusCode() == 200;
+            } catch (Exception ignored) {
+                return false;
+            }
+        });
+    }
+
+    @AfterClass
+    public static void teardownNameService() throws Exception {
+        if (nameService != null) {
+            LocalServices.stop(nameService);
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        greetingService = LocalServices.startGreetingService(Arrays.asList("-Dgreeting.client.protocol=" + protocol, "-Dgreeting.admin.enabled=true",
+                "-Dgreeting.admin.token=" + ADMIN_TOKEN));
+        await().pollInterval(1, TimeUnit.SECONDS).atMost(2, TimeUnit.MINUTES).until(() -> {
+            try {
+                return greeting().contains(HELLO_WORLD);
+            } catch (IOException | AssertionError ignored) {
+                // Not started yet
+                return false;
+            }
+        });
+    }
+
+    @After
+    public void teardown() throws Exception {
+        changeNameServiceState("ok");
+        if (greetingService != null) {
+            LocalServices.stop(greetingService);
+        }
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testGreeting() throws Exception {
+        // NameCommand
+        assertGreetings(HELLO_WORLD);
+
+        // NameCollapser and NamesCommand
+        setProperty("greeting.collapse", "true");
+        assertGreetings(HELLO_WORLD);
+        setProperty("greeting.collapse", "false");
+
+        // NameObservableCommand
+        setProperty("greeting.async", "true");
+        assertGreetings(HELLO_WORLD);
+        setProperty("greeting.async", "false");
+
+        // Failure responses
+        changeNameServiceState("fail");
+        assertGreetings(FALLBACK);
+        changeNameServiceState("ok");
+        // Wait until the circuit breaker is closed
+        await().atMost(30, TimeUnit.SECONDS).until(() -> greeting().contains(HELLO_WORLD));
+        assertGreetings(HELLO_WORLD);
+    }
+
+    private void assertGreetings(String expected) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> greetings = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                greetings.add(executor.submit(this::greeting));
+            }
+            for (Future<String> greeting : greetings) {
+                String content = greeting.get(30, TimeUnit.SECONDS);
+                assertTrue(protocol + ": " + content, content.contains(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String greeting() throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(LocalServices.GREETING_BASE_URI + "/api/greeting").build()).execute()) {
+            assertEquals(200, response.code());
+            return response.body().string();
+        }
+    }
+
+    private static void setProperty(String key, String value) {
+        RestAssured.given().header("Content-type", "application/json").header("Authorization", "Bearer " + ADMIN_TOKEN)
+                .body(Json.createObjectBuilder().add(key, value).build().toString())
+                .put(LocalServices.GREETING_BASE_URI + "/api/admin/properties").then().assertThat().statusCode(200);
+    }
+
+    private static void changeNameServiceState(String state) {
+        RestAssured.given().header("Content-type", "application/json").body(Json.createObjectBuilder().add("state", state).build().toString())
+                .put(LocalServices.NAME_BASE_URI + "/api/state").then().assertThat().statusCode(200);
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jayway.restassured.RestAssured;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Starts both services locally and drives <code>/api/greeting</code> at a constant rate (open loop), i.e. the requests are sent according to the
+ * schedule no matter how long the previous requests take. The latency is measured from the intended start time so that it is not affected by the
+ * coordinated omission. The name service is switched off and on during the run to trip and recover the circuit breaker.
+ * <p>
+ * The test is configured with the following system properties:
+ * <ul>
+ * <li><code>load.rate</code> - requests per second (default 200)</li>
+ * <li><code>load.duration</code> - the run duration in seconds (default 30)</li>
+ * <li><code>load.failAt</code>, <code>load.recoverAt</code> - when the name service is switched off and on, in seconds (default 10 and 20)</li>
+ * <li><code>load.maxP99</code> - if set the test fails if the 99th percentile latency in milliseconds exceeds the value</li>
+ * <li><code>load.minThroughput</code> - if set the test fails if the throughput in requests per second is lower</li>
+ * <li><code>load.jvmArgs</code> - whitespace-separated JVM arguments of both services</li>
+ * </ul>
+ * The report is printed and also written to <code>target/load-report.json</code>.
+ */
+public class LoadIT {
+
+    private static final String FALLBACK = "Fallback";
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+
+    private static final int DURATION = Integer.getInteger("load.duration", 30);
+
+    private static final int FAIL_AT = Integer.getInteger("load.failAt", 10);
+
+    private static final int RECOVER_AT = Integer.getInteger("load.recoverAt", 20);
+
+    private static final List<Process> PROCESSES = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        PROCESSES.add(LocalServices.startNameService(LocalServices.getJvmArgs("load.jvmArgs")));
+        PROCESSES.add(LocalServices.startGreetingService(LocalServices.getJvmArgs("load.jvmArgs")));
+        await().pollInterval(1, TimeUnit.SECONDS).atMost(2, TimeUnit.MINUTES).until(() -> {
+            try {
+                return RestAssured.get(LocalServices.NAME_BASE_URI + "/api/info").getStatusCode() == 200
+                        && RestAssured.get(LocalServices.GREETING_BASE_URI + "/api/greeting").getStatusCode() == 200;
+            } catch (Exception ignored) {
+                return false;
+            }
+        });
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        for (Process process : PROCESSES) {
+            LocalServices.stop(process);
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(10000);
+        dispatcher.setMaxRequestsPerHost(10000);
+        OkHttpClient client = new OkHttpClient.Builder().dispatcher(dispatcher).readTimeout(1, TimeUnit.MINUTES).build();
+        Request greeting = new Request.Builder().url(LocalServices.GREETING_BASE_URI + "/api/greeting").build();
+
+        Recorder recorder = new Recorder(MAX_LATENCY, 3);
+        LongAdder completed = new LongAdder();
+        LongAdder fallbacks = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder watchErrors = new LongAdder();
+        AtomicLong openedAt = new AtomicLong();
+        AtomicLong closedAt = new AtomicLong();
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long total = (long) RATE * DURATION;
+        long start = System.nanoTime();
+        long failAt = start + TimeUnit.SECONDS.toNanos(FAIL_AT);
+        long recoverAt = start + TimeUnit.SECONDS.toNanos(RECOVER_AT);
+
+        // Watch the circuit breaker - an exception would cancel all the subsequent polls
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                String state = RestAssured.get(LocalServices.GREETING_BASE_URI + "/api/cb-state").jsonPath().getString("state");
+                long now = System.nanoTime();
+                if ("open".equals(state) && now > failAt) {
+                    openedAt.compareAndSet(0, now);
+                } else if ("closed".equals(state) && openedAt.get() != 0) {
+                    closedAt.compareAndSet(0, now);
+                }
+            } catch (Exception e) {
+                watchErrors.increment();
+            }
+        }, 0, 50, TimeUnit.MILLISECONDS);
+        executor.schedule(() -> changeNameServiceState("fail"), FAIL_AT, TimeUnit.SECONDS);
+        executor.schedule(() -> changeNameServiceState("ok"), RECOVER_AT, TimeUnit.SECONDS);
+
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            client.newCall(greeting).enqueue(new Callback() {
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try {
+                        if (response.code() == 200) {
+                            if (response.body().string().contains(FALLBACK)) {
+                                fallbacks.increment();
+                            }
+                        } else {
+                            errors.increment();
+                        }
+                    } finally {
+                        response.close();
+                        record();
+                    }
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    errors.increment();
+                    record();
+                }
+
+                private void record() {
+                    // Measured from the intended start time, i.e. corrected for the coordinated omission
+                    recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended), MAX_LATENCY));
+                    completed.increment();
+                }
+            });
+        }
+        await().atMost(1, TimeUnit.MINUTES).until(() -> completed.sum() == total);
+        long elapsed = System.nanoTime() - start;
+        executor.shutdownNow();
+        dispatcher.executorService().shutdown();
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        double throughput = completed.sum() / (elapsed / 1e9);
+        JsonObjectBuilder report = Json.createObjectBuilder().add("rate", RATE).add("duration", DURATION).add("requests", completed.sum())
+                .add("throughput", throughput).add("errors", errors.sum()).add("fallbackRatio", (double) fallbacks.sum() / completed.sum())
+                .add("latencyMillis",
+                        Json.createObjectBuilder().add("p50", millis(histogram, 50)).add("p90", millis(histogram, 90)).add("p99", millis(histogram, 99))
+                                .add("p99.9", millis(histogram, 99.9)).add("max", histogram.getMaxValue() / 1000.0))
+                .add("breakerOpenedAfterMillis", openedAt.get() != 0 ? TimeUnit.NANOSECONDS.toMillis(openedAt.get() - failAt) : -1)
+                .add("breakerRecoveredAfterMillis", closedAt.get() != 0 ? TimeUnit.NANOSECONDS.toMillis(closedAt.get() - recoverAt) : -1)
+                .add("breakerWatchErrors", watchErrors.sum());
+        String json = report.build().toString();
+        System.out.println("Load test report: " + json);
+        File target = new File("target");
+        target.mkdirs();
+        Files.write(new File(target, "load-report.json").toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+        assertTrue("Circuit breaker not opened", openedAt.get() != 0);
+        assertTrue("Circuit breaker not closed", closedAt.get() != 0);
+        String maxP99 = System.getProperty("load.maxP99");
+        if (maxP99 != null) {
+            assertTrue(String.format(Locale.ENGLISH, "p99 latency %.2f ms exceeds %s ms", millis(histogram, 99), maxP99),
+                    millis(histogram, 99) <= Double.parseDouble(maxP99));
+        }
+        String minThroughput = System.getProperty("load.minThroughput");
+        if (minThroughput != null) {
+            assertTrue(String.format(Locale.ENGLISH, "Throughput %.2f req/s is lower than %s req/s", throughput, minThroughput),
+                    throughput >= Double.parseDouble(minThroughput));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static void changeNameServiceState(String state) {
+        RestAssured.given().header("Content-type", "application/json").body(Json.createObjectBuilder().add("state", state).build().toString())
+                .put(LocalServices.NAME_BASE_URI + "/api/state").then().assertThat().statusCode(200);
+    }
+
+}
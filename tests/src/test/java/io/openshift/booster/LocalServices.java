@@ -0,0 +1,127 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the service uberjars locally, see also the <code>nameServiceJar</code> and <code>greetingServiceJar</code> system properties.
+ *
+ * @see LoadIT
+ * @see ClientProtocolIT
+ * @see StartupIT
+ */
+final class LocalServices {
+
+    static final String NAME_BASE_URI = "http://localhost:8081";
+
+    static final String GREETING_BASE_URI = "http://localhost:8080";
+
+    private LocalServices() {
+    }
+
+    static Process startNameService(List<String> jvmArgs) throws IOException {
+        return start(System.getProperty("nameServiceJar"), jvmArgs, "-Dswarm.http.port=8081");
+    }
+
+    static Process startGreetingService(List<String> jvmArgs) throws IOException {
+        return start(System.getProperty("greetingServiceJar"), jvmArgs, "-Dswarm.http.port=8080", "-Dgreeting.name.uri=" + NAME_BASE_URI + "/api/name");
+    }
+
+    static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     *
+     * @param process
+     * @return the resident set size in kilobytes or -1 if not available, only supported on Linux
+     */
+    static long getRss(Process process) {
+        long pid = getPid(process);
+        if (pid < 0) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(new File("/proc/" + pid + "/status").toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    // E.g. "VmRSS:	  123456 kB"
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param property
+     * @return the whitespace-separated JVM arguments
+     */
+    static List<String> getJvmArgs(String property) {
+        String value = System.getProperty(property, "").trim();
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> args = new ArrayList<>();
+        Collections.addAll(args, value.split("\\s+"));
+        return args;
+    }
+
+    private static Process start(String jar, List<String> jvmArgs, String... properties) throws IOException {
+        if (jar == null || !new File(jar).exists()) {
+            throw new IllegalStateException("Uberjar not found: " + jar);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmArgs);
+        Collections.addAll(command, properties);
+        command.add("-jar");
+        command.add(jar);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static long getPid(Process process) {
+        try {
+            // Java 9+
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (Exception e) {
+            try {
+                // java.lang.UNIXProcess
+                Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return field.getInt(process);
+            } catch (Exception ignored) {
+                return -1;
+            }
+        }
+    }
+
+}
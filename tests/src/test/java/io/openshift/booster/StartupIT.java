@@ -0,0 +1,161 @@
+/*
+ *
+ *  Copyright 2016-2017 Red Hat, Inc, and individual contributors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package io.openshift.booster;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jayway.restassured.RestAssured;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Measures the greeting service cold start, i.e. the time from the process start to the first greeting served with a name from the name service,
+ * and the resident set size at idle. The name service is started once, the greeting service is started <code>startup.runs</code> times.
+ * <p>
+ * The test is configured with the following system properties:
+ * <ul>
+ * <li><code>startup.runs</code> - the number of greeting service starts (default 3)</li>
+ * <li><code>startup.idle</code> - how long to wait after the first greeting before the RSS is measured, in seconds (default 10)</li>
+ * <li><code>startup.jvmArgs</code> - whitespace-separated JVM arguments of the greeting service</li>
+ * <li><code>startup.maxTimeToFirstGreeting</code> - if set the test fails if the median time to the first greeting in milliseconds exceeds the
+ * value</li>
+ * <li><code>startup.maxRss</code> - if set the test fails if the median RSS in megabytes exceeds the value</li>
+ * <li><code>startup.history</code> - if set the report is appended to the given file, one JSON object per line, so that the values may be tracked
+ * over time</li>
+ * </ul>
+ * The report is printed and also written to <code>target/startup-report.json</code>.
+ */
+public class StartupIT {
+
+    private static final String HELLO_WORLD = "Hello, World!";
+
+    private static final int RUNS = Integer.getInteger("startup.runs", 3);
+
+    private static final int IDLE = Integer.getInteger("startup.idle", 10);
+
+    private static Process nameService;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        nameService = LocalServices.startNameService(Collections.emptyList());
+        await().pollInterval(1, TimeUnit.SECONDS).atMost(2, TimeUnit.MINUTES).until(() -> {
+            try {
+                return RestAssured.get(LocalServices.NAME_BASE_URI + "/api/info").getStatusCode() == 200;
+            } catch (Exception ignored) {
+                return false;
+            }
+        });
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        if (nameService != null) {
+            LocalServices.stop(nameService);
+        }
+    }
+
+    @Test
+    public void testStartup() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder().connectTimeout(100, TimeUnit.MILLISECONDS).readTimeout(5, TimeUnit.SECONDS).build();
+        Request greeting = new Request.Builder().url(LocalServices.GREETING_BASE_URI + "/api/greeting").build();
+        List<String> jvmArgs = LocalServices.getJvmArgs("startup.jvmArgs");
+        long[] timesToFirstGreeting = new long[RUNS];
+        long[] rss = new long[RUNS];
+        JsonArrayBuilder runs = Json.createArrayBuilder();
+
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Process greetingService = LocalServices.startGreetingService(jvmArgs);
+            try {
+                long deadline = start + TimeUnit.MINUTES.toNanos(2);
+                while (!isWorld(client, greeting)) {
+                    assertTrue("Greeting service not started within 2 minutes", System.nanoTime() < deadline);
+                    TimeUnit.MILLISECONDS.sleep(10);
+                }
+                timesToFirstGreeting[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                TimeUnit.SECONDS.sleep(IDLE);
+                rss[i] = LocalServices.getRss(greetingService);
+            } finally {
+                LocalServices.stop(greetingService);
+                client.connectionPool().evictAll();
+            }
+            runs.add(Json.createObjectBuilder().add("timeToFirstGreetingMillis", timesToFirstGreeting[i]).add("idleRssKb", rss[i]));
+        }
+
+        long medianTime = median(timesToFirstGreeting);
+        long medianRss = median(rss);
+        JsonObject report = Json.createObjectBuilder().add("timestamp", System.currentTimeMillis()).add("jvmArgs", String.join(" ", jvmArgs))
+                .add("timeToFirstGreetingMillis", medianTime).add("idleRssKb", medianRss).add("runs", runs).build();
+        String json = report.toString();
+        System.out.println("Startup report: " + json);
+        File target = new File("target");
+        target.mkdirs();
+        Files.write(new File(target, "startup-report.json").toPath(), json.getBytes(StandardCharsets.UTF_8));
+        String history = System.getProperty("startup.history");
+        if (history != null) {
+            Files.write(new File(history).toPath(), (json + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        String maxTime = System.getProperty("startup.maxTimeToFirstGreeting");
+        if (maxTime != null) {
+            assertTrue("Time to first greeting " + medianTime + " ms exceeds " + maxTime + " ms", medianTime <= Long.parseLong(maxTime));
+        }
+        String maxRss = System.getProperty("startup.maxRss");
+        if (maxRss != null && medianRss >= 0) {
+            assertTrue("Idle RSS " + medianRss / 1024 + " MB exceeds " + maxRss + " MB", medianRss <= Long.parseLong(maxRss) * 1024);
+        }
+    }
+
+    private static boolean isWorld(OkHttpClient client, Request greeting) {
+        try (Response response = client.newCall(greeting).execute()) {
+            // The fallback does not count
+            return response.code() == 200 && response.body().string().contains(HELLO_WORLD);
+        } catch (IOException ignored) {
+            // Not started yet
+            return false;
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+}